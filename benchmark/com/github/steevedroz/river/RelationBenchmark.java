@@ -0,0 +1,157 @@
+package com.github.steevedroz.river;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.steevedroz.river.passenger.CustomPassenger;
+import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.relation.RelationBoolean;
+import com.github.steevedroz.river.passenger.relation.RelationElement;
+import com.github.steevedroz.river.passenger.relation.RelationOperator;
+
+/**
+ * This program measures the time needed to evaluate deep chains of
+ * <code>OR</code> and <code>AND</code> relations. Each element of a chain
+ * being evaluated once, the time per level should stay the same whatever the
+ * depth: the program fails if the time per level of the deepest chain is more
+ * than {@link #TOLERANCE} times the one of the shallowest chain.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class RelationBenchmark {
+	/**
+	 * The number of kinds of passengers on the location.
+	 */
+	private static final int KINDS = 8;
+	/**
+	 * The number of evaluations timed for each chain.
+	 */
+	private static final int EVALUATIONS = 20000;
+	/**
+	 * How many times the time per level may grow between the shallowest and
+	 * the deepest chain.
+	 */
+	private static final double TOLERANCE = 4;
+
+	public static void main(String[] args) {
+		List<Passenger> passengers = new ArrayList<Passenger>();
+		for (int kind = 0; kind < KINDS; kind++) {
+			passengers.add(new CustomPassenger(nameOf(kind)));
+			passengers.add(new CustomPassenger(nameOf(kind)));
+		}
+		for (RelationOperator operator : RelationOperator.values()) {
+			System.out.println(operator);
+			double shallowest = 0;
+			double deepest = 0;
+			for (int depth = 8; depth <= 256; depth *= 2) {
+				RelationElement chain = chain(operator, depth);
+				time(chain, passengers);
+				long time = time(chain, passengers);
+				System.out.println("depth " + depth + ": " + time
+						/ EVALUATIONS + " ns, " + time / EVALUATIONS / depth
+						+ " ns per level");
+				deepest = (double) time / depth;
+				if (shallowest == 0) {
+					shallowest = deepest;
+				}
+			}
+			if (deepest > shallowest * TOLERANCE) {
+				throw new IllegalStateException("The time per level of "
+						+ operator + " grows with the depth");
+			}
+		}
+	}
+
+	/**
+	 * Builds a chain of relations where each element matches a kind of
+	 * passengers and is combined with the rest of the chain.
+	 * 
+	 * @param operator
+	 *            The operator of every relation.
+	 * @param depth
+	 *            The number of relations.
+	 * @return The first relation of the chain.
+	 */
+	private static RelationElement chain(RelationOperator operator, int depth) {
+		RelationElement chain = new Kind(nameOf(depth));
+		for (int level = depth - 1; level >= 0; level--) {
+			RelationBoolean relation = new RelationBoolean();
+			relation.setElement1(new Kind(nameOf(level)));
+			relation.setElement2(chain);
+			relation.setOperator(operator);
+			chain = relation;
+		}
+		return chain;
+	}
+
+	/**
+	 * Evaluates a chain several times.
+	 * 
+	 * @param chain
+	 *            The chain.
+	 * @param passengers
+	 *            The passengers to check the presence against.
+	 * @return The time spent, in nanoseconds.
+	 */
+	private static long time(RelationElement chain, List<Passenger> passengers) {
+		long start = System.nanoTime();
+		int found = 0;
+		for (int i = 0; i < EVALUATIONS; i++) {
+			if (chain.getPresence(passengers) != null) {
+				found++;
+			}
+		}
+		if (found != 0 && found != EVALUATIONS) {
+			throw new IllegalStateException("The evaluation isn't stable");
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns the name of a kind of passengers.
+	 * 
+	 * @param kind
+	 *            The index of the kind, any positive number.
+	 * @return The name.
+	 */
+	private static String nameOf(int kind) {
+		return "Passager " + kind % KINDS;
+	}
+
+	/**
+	 * This element matches the passengers with a given name.
+	 */
+	private static class Kind implements RelationElement {
+		/**
+		 * The name of the passengers.
+		 */
+		private String name;
+
+		/**
+		 * This constructor creates an element matching a name.
+		 * 
+		 * @param name
+		 *            The name of the passengers.
+		 */
+		public Kind(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public List<Passenger> getPresence(List<Passenger> passengers) {
+			List<Passenger> presence = new ArrayList<Passenger>();
+			for (Passenger passenger : passengers) {
+				if (passenger.getName().equals(name)) {
+					presence.add(passenger);
+				}
+			}
+			return presence.size() > 0 ? presence : null;
+		}
+
+		@Override
+		public RelationElement cloneOf() {
+			return new Kind(name);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.github.steevedroz.river;
+
+/**
+ * This enum lists the outcomes of a crossing checked by
+ * {@link River#checkMove(java.util.List)}. Each invalid outcome matches the
+ * exception {@link River#board(com.github.steevedroz.river.passenger.Passenger)}
+ * or {@link River#cross()} would throw, or the passenger the boat would refuse.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public enum MoveResult {
+	/**
+	 * The crossing can be made.
+	 */
+	VALID,
+	/**
+	 * A passenger isn't on the shore of the boat, see
+	 * {@link com.github.steevedroz.river.exceptions.NoBoatException}.
+	 */
+	NO_BOAT,
+	/**
+	 * The passengers are too heavy for the boat.
+	 */
+	OVERWEIGHT,
+	/**
+	 * A passenger gets killed, see
+	 * {@link com.github.steevedroz.river.exceptions.DeathException}.
+	 */
+	DEATH,
+	/**
+	 * Nobody on the boat can navigate, see
+	 * {@link com.github.steevedroz.river.exceptions.NoNavigatorException}.
+	 */
+	NO_NAVIGATOR;
+}
@@ -1,5 +1,8 @@
 package com.github.steevedroz.river;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.github.steevedroz.river.exceptions.DeathException;
 import com.github.steevedroz.river.exceptions.NoBoatException;
 import com.github.steevedroz.river.exceptions.NoNavigatorException;
@@ -7,6 +10,9 @@ import com.github.steevedroz.river.location.Boat;
 import com.github.steevedroz.river.location.Location;
 import com.github.steevedroz.river.location.Shore;
 import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.PassengerRegistry;
+import com.github.steevedroz.river.passenger.relation.CompiledRelations;
+import com.github.steevedroz.river.passenger.relation.SafetyCheck;
 
 /**
  * This class contains the data and the logic for using the application. It is
@@ -157,6 +163,135 @@ public class River {
 		survival();
 	}
 
+	/**
+	 * Checks whether some passengers can board and cross the river, without
+	 * moving anybody and without throwing any exception. It is the same as
+	 * calling {@link #board(Passenger)} for each passenger, then
+	 * {@link #cross()}, on a copy of the river.
+	 * 
+	 * @param load
+	 *            The passengers that would board.
+	 * @return {@link MoveResult#VALID} if the crossing can be made, otherwise
+	 *         the reason why it can't.
+	 */
+	public MoveResult checkMove(List<Passenger> load) {
+		Shore source = boat.getShore();
+		Shore destination = source == left ? right : left;
+		return checkMove(load, source.getPassengers(),
+				destination.getPassengers(), boat.getPassengers(),
+				boat.getMaxWeight(), boat.isEmptyOnArrival(),
+				boat.getSafetyCheck(), boat.getRegistry());
+	}
+
+	/**
+	 * Checks whether some passengers can board and cross a river given by the
+	 * passengers of its locations. It is the rule used by
+	 * {@link #checkMove(List)} and {@link RiverSnapshot#checkMove(List)}.
+	 * 
+	 * @param load
+	 *            The passengers that would board.
+	 * @param source
+	 *            The passengers on the shore of the boat.
+	 * @param destination
+	 *            The passengers on the other shore.
+	 * @param boat
+	 *            The passengers on the boat.
+	 * @param maxWeight
+	 *            The maximum weight the boat can hold.
+	 * @param emptyOnArrival
+	 *            Whether the passengers leave the boat on arrival.
+	 * @param safetyCheck
+	 *            The compiled relations of the river, or <code>null</code>.
+	 * @param registry
+	 *            The registry of the passengers, used when there are no
+	 *            compiled relations, or <code>null</code>.
+	 * @return {@link MoveResult#VALID} if the crossing can be made, otherwise
+	 *         the reason why it can't.
+	 */
+	static MoveResult checkMove(List<Passenger> load, List<Passenger> source,
+			List<Passenger> destination, List<Passenger> boat, int maxWeight,
+			boolean emptyOnArrival, SafetyCheck safetyCheck,
+			PassengerRegistry registry) {
+		int weight = 0;
+		boolean navigator = false;
+		for (int i = 0; i < load.size(); i++) {
+			Passenger passenger = load.get(i);
+			if (!source.contains(passenger) || load.indexOf(passenger) != i) {
+				return MoveResult.NO_BOAT;
+			}
+			weight += passenger.getWeight();
+			navigator |= passenger.isNavigator();
+		}
+		for (Passenger passenger : boat) {
+			weight += passenger.getWeight();
+			navigator |= passenger.isNavigator();
+		}
+		if (weight > maxWeight) {
+			return MoveResult.OVERWEIGHT;
+		}
+
+		List<Passenger> remaining = new ArrayList<Passenger>(source);
+		remaining.removeAll(load);
+		List<Passenger> aboard = new ArrayList<Passenger>(boat);
+		aboard.addAll(load);
+		if (!isSafe(remaining, safetyCheck, registry)
+				|| !isSafe(destination, safetyCheck, registry)
+				|| !isSafe(aboard, safetyCheck, registry)) {
+			return MoveResult.DEATH;
+		}
+		if (!navigator) {
+			return MoveResult.NO_NAVIGATOR;
+		}
+		if (emptyOnArrival) {
+			List<Passenger> arrived = new ArrayList<Passenger>(destination);
+			arrived.addAll(aboard);
+			if (!isSafe(arrived, safetyCheck, registry)) {
+				return MoveResult.DEATH;
+			}
+		}
+		return MoveResult.VALID;
+	}
+
+	/**
+	 * Boards some passengers and crosses the river if the crossing is valid,
+	 * otherwise leaves the river untouched. Unlike {@link #board(Passenger)}
+	 * and {@link #cross()}, it doesn't throw any exception.
+	 * 
+	 * @param load
+	 *            The passengers that board.
+	 * @return {@link MoveResult#VALID} if the crossing has been made,
+	 *         otherwise the reason why it can't.
+	 * @see #checkMove(List)
+	 */
+	public MoveResult tryCross(List<Passenger> load) {
+		MoveResult result = checkMove(load);
+		if (result == MoveResult.VALID) {
+			Shore source = boat.getShore();
+			for (Passenger passenger : load) {
+				source.go(passenger, boat);
+			}
+			boat.setShore(source == left ? right : left);
+			if (boat.isEmptyOnArrival()) {
+				boat.empty();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Indexes the passengers of the shores and of the boat with a registry,
+	 * see {@link Location#setRegistry(PassengerRegistry)}.
+	 * 
+	 * @param registry
+	 *            The registry, or <code>null</code> to keep the passengers in
+	 *            lists.
+	 */
+	public void setRegistry(PassengerRegistry registry) {
+		left.setRegistry(registry);
+		right.setRegistry(registry);
+		boat.setRegistry(registry);
+	}
+
 	/**
 	 * Returns the left shore of the river.
 	 * 
@@ -214,6 +349,46 @@ public class River {
 		this.boat = boat;
 	}
 
+	/**
+	 * Compiles the relations of every passenger of the river into masks, and
+	 * uses them from then on to check survival on each shore and on the boat.
+	 * It must be called again if passengers are added or their relations
+	 * change.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the river holds more than
+	 *             {@link CompiledRelations#MAX_PASSENGERS} passengers.
+	 */
+	public void compileRelations() {
+		List<Passenger> passengers = new ArrayList<Passenger>();
+		passengers.addAll(left.getPassengers());
+		passengers.addAll(right.getPassengers());
+		passengers.addAll(boat.getPassengers());
+		CompiledRelations relations = new CompiledRelations(passengers);
+		left.setSafetyCheck(relations);
+		right.setSafetyCheck(relations);
+		boat.setSafetyCheck(relations);
+	}
+
+	/**
+	 * Returns whether some passengers would survive together, using the
+	 * compiled relations if there are some, otherwise the kinds of the
+	 * registry if there is one.
+	 * 
+	 * @param passengers
+	 *            The passengers.
+	 * @param check
+	 *            The compiled relations, or <code>null</code>.
+	 * @param registry
+	 *            The registry of the passengers, or <code>null</code>.
+	 * @return <code>true</code> if nobody gets killed.
+	 */
+	private static boolean isSafe(List<Passenger> passengers,
+			SafetyCheck check, PassengerRegistry registry) {
+		return check != null ? check.isSafe(passengers) : Location.isSafe(
+				passengers, registry);
+	}
+
 	/**
 	 * Tests for survival on each shore and on the boat.
 	 * 
@@ -0,0 +1,334 @@
+package com.github.steevedroz.river;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.steevedroz.river.location.Boat;
+import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.relation.SafetyCheck;
+import com.github.steevedroz.utils.StringUtils;
+
+/**
+ * This class is a position of a river that can't be modified. Crossing the
+ * river from a snapshot returns a new snapshot, which shares with the first
+ * one everything the crossing didn't change: the passengers themselves, the
+ * locations nobody left or reached, and the names and settings of the
+ * river.<br />
+ * <br />
+ * The passengers of the river are numbered once, when the first snapshot is
+ * taken, and each location of a snapshot is a bitset of their numbers. A
+ * crossing only copies the bitsets of the locations it changes, one word
+ * per 64 passengers, and shares the others with the snapshot it comes from.
+ * The lists returned by {@link #getLeft()}, {@link #getRight()} and
+ * {@link #getBoat()} are built from the bitsets on each call.<br />
+ * <br />
+ * <b>Example:</b>
+ * 
+ * <pre>
+ * RiverSnapshot start = new RiverSnapshot(river);
+ * RiverSnapshot next = start.cross(Arrays.asList(farmer, goat));
+ * if (next != null) {
+ * 	System.out.println(next);
+ * }
+ * </pre>
+ * 
+ * @author Steeve Droz
+ * @see River
+ * 
+ */
+public final class RiverSnapshot {
+	/**
+	 * The location nobody is on. It is never modified.
+	 */
+	private static final BitSet NOBODY = new BitSet();
+
+	/**
+	 * The settings shared by every snapshot of a river.
+	 */
+	private final Layout layout;
+	/**
+	 * The numbers of the passengers on the left shore. It is never modified.
+	 */
+	private final BitSet left;
+	/**
+	 * The numbers of the passengers on the right shore. It is never modified.
+	 */
+	private final BitSet right;
+	/**
+	 * The numbers of the passengers on the boat. It is never modified.
+	 */
+	private final BitSet boat;
+	/**
+	 * Whether the boat is on the right shore.
+	 */
+	private final boolean boatOnRight;
+
+	/**
+	 * This constructor takes a snapshot of a river in its current position.
+	 * The river can be moved afterwards without changing the snapshot.
+	 * 
+	 * @param river
+	 *            The river.
+	 */
+	public RiverSnapshot(River river) {
+		this.layout = new Layout(river);
+		this.left = layout.membersOf(river.getLeft().getPassengers());
+		this.right = layout.membersOf(river.getRight().getPassengers());
+		this.boat = layout.membersOf(river.getBoat().getPassengers());
+		this.boatOnRight = river.getBoat().getShore() == river.getRight();
+	}
+
+	/**
+	 * This constructor creates a snapshot from its parts.
+	 * 
+	 * @param layout
+	 *            The settings of the river.
+	 * @param left
+	 *            The numbers of the passengers on the left shore.
+	 * @param right
+	 *            The numbers of the passengers on the right shore.
+	 * @param boat
+	 *            The numbers of the passengers on the boat.
+	 * @param boatOnRight
+	 *            Whether the boat is on the right shore.
+	 */
+	private RiverSnapshot(Layout layout, BitSet left, BitSet right,
+			BitSet boat, boolean boatOnRight) {
+		this.layout = layout;
+		this.left = left;
+		this.right = right;
+		this.boat = boat;
+		this.boatOnRight = boatOnRight;
+	}
+
+	/**
+	 * Returns a text-only representation of the snapshot, in the same format
+	 * as {@link com.github.steevedroz.river.ai.RiverState#getState()}.
+	 */
+	@Override
+	public String toString() {
+		return StringUtils.join(sorted(getLeft()), ",") + "|"
+				+ StringUtils.join(sorted(getRight()), ",") + "|"
+				+ StringUtils.join(sorted(getBoat()), ",") + "|"
+				+ (boatOnRight ? layout.rightName : layout.leftName);
+	}
+
+	/**
+	 * Checks whether some passengers can board and cross the river, the same
+	 * way as {@link River#checkMove(List)}.
+	 * 
+	 * @param load
+	 *            The passengers that would board.
+	 * @return {@link MoveResult#VALID} if the crossing can be made, otherwise
+	 *         the reason why it can't.
+	 */
+	public MoveResult checkMove(List<Passenger> load) {
+		return River.checkMove(load, layout.passengersOf(boatOnRight ? right
+				: left), layout.passengersOf(boatOnRight ? left : right),
+				layout.passengersOf(boat), layout.maxWeight,
+				layout.emptyOnArrival, layout.safetyCheck, null);
+	}
+
+	/**
+	 * Boards some passengers and crosses the river, the same way as
+	 * {@link River#tryCross(List)}, but leaves this snapshot untouched.
+	 * 
+	 * @param load
+	 *            The passengers that board.
+	 * @return The snapshot after the crossing, or <code>null</code> if the
+	 *         crossing can't be made, see {@link #checkMove(List)}.
+	 */
+	public RiverSnapshot cross(List<Passenger> load) {
+		if (checkMove(load) != MoveResult.VALID) {
+			return null;
+		}
+		BitSet boarding = layout.membersOf(load);
+		BitSet source = (BitSet) (boatOnRight ? right : left).clone();
+		source.andNot(boarding);
+		BitSet destination = boatOnRight ? left : right;
+		BitSet aboard = (BitSet) boat.clone();
+		aboard.or(boarding);
+		if (layout.emptyOnArrival) {
+			destination = (BitSet) destination.clone();
+			destination.or(aboard);
+			aboard = NOBODY;
+		}
+		return boatOnRight ? new RiverSnapshot(layout, destination, source,
+				aboard, false) : new RiverSnapshot(layout, source,
+				destination, aboard, true);
+	}
+
+	/**
+	 * Creates a river in the position of this snapshot. The river holds the
+	 * same passengers, and moving it doesn't change the snapshot.
+	 * 
+	 * @return A new river.
+	 */
+	public River toRiver() {
+		River river = new River(layout.maxWeight);
+		river.getLeft().setName(layout.leftName);
+		river.getRight().setName(layout.rightName);
+		Boat boat = river.getBoat();
+		boat.setName(layout.boatName);
+		boat.setEmptyOnArrival(layout.emptyOnArrival);
+		river.getLeft().addAll(getLeft());
+		river.getRight().addAll(getRight());
+		boat.addAll(getBoat());
+		boat.setShore(boatOnRight ? river.getRight() : river.getLeft());
+		river.getLeft().setSafetyCheck(layout.safetyCheck);
+		river.getRight().setSafetyCheck(layout.safetyCheck);
+		boat.setSafetyCheck(layout.safetyCheck);
+		return river;
+	}
+
+	/**
+	 * Returns the passengers on the left shore.
+	 * 
+	 * @return A new list of the passengers, that can't be modified.
+	 */
+	public List<Passenger> getLeft() {
+		return layout.passengersOf(left);
+	}
+
+	/**
+	 * Returns the passengers on the right shore.
+	 * 
+	 * @return A new list of the passengers, that can't be modified.
+	 */
+	public List<Passenger> getRight() {
+		return layout.passengersOf(right);
+	}
+
+	/**
+	 * Returns the passengers on the boat.
+	 * 
+	 * @return A new list of the passengers, that can't be modified.
+	 */
+	public List<Passenger> getBoat() {
+		return layout.passengersOf(boat);
+	}
+
+	/**
+	 * Returns whether the boat is on the right shore.
+	 * 
+	 * @return Whether the boat is on the right shore.
+	 */
+	public boolean isBoatOnRight() {
+		return boatOnRight;
+	}
+
+	/**
+	 * Returns the passengers of a location sorted by name.
+	 * 
+	 * @param passengers
+	 *            The passengers.
+	 * @return A new sorted list.
+	 */
+	private static List<Passenger> sorted(List<Passenger> passengers) {
+		List<Passenger> sorted = new ArrayList<Passenger>(passengers);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * This class holds the settings of a river that no crossing changes.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private static final class Layout {
+		/**
+		 * The name of the left shore.
+		 */
+		private final String leftName;
+		/**
+		 * The name of the right shore.
+		 */
+		private final String rightName;
+		/**
+		 * The name of the boat.
+		 */
+		private final String boatName;
+		/**
+		 * The maximum weight the boat can hold.
+		 */
+		private final int maxWeight;
+		/**
+		 * Whether the passengers leave the boat on arrival.
+		 */
+		private final boolean emptyOnArrival;
+		/**
+		 * The compiled relations of the river, or <code>null</code>.
+		 */
+		private final SafetyCheck safetyCheck;
+		/**
+		 * The passengers of the river, by number.
+		 */
+		private final Passenger[] passengers;
+		/**
+		 * The number of each passenger.
+		 */
+		private final Map<Passenger, Integer> numbers;
+
+		/**
+		 * This constructor reads the settings of a river.
+		 * 
+		 * @param river
+		 *            The river.
+		 */
+		private Layout(River river) {
+			leftName = river.getLeft().getName();
+			rightName = river.getRight().getName();
+			boatName = river.getBoat().getName();
+			maxWeight = river.getBoat().getMaxWeight();
+			emptyOnArrival = river.getBoat().isEmptyOnArrival();
+			safetyCheck = river.getBoat().getSafetyCheck();
+			List<Passenger> all = new ArrayList<Passenger>();
+			all.addAll(river.getLeft().getPassengers());
+			all.addAll(river.getRight().getPassengers());
+			all.addAll(river.getBoat().getPassengers());
+			passengers = all.toArray(new Passenger[all.size()]);
+			numbers = new IdentityHashMap<Passenger, Integer>();
+			for (int i = 0; i < passengers.length; i++) {
+				numbers.put(passengers[i], i);
+			}
+		}
+
+		/**
+		 * Returns the numbers of some passengers of the river.
+		 * 
+		 * @param passengers
+		 *            The passengers.
+		 * @return A new bitset of their numbers.
+		 */
+		private BitSet membersOf(List<Passenger> passengers) {
+			BitSet members = new BitSet(this.passengers.length);
+			for (Passenger passenger : passengers) {
+				members.set(numbers.get(passenger));
+			}
+			return members;
+		}
+
+		/**
+		 * Returns the passengers of a bitset of numbers.
+		 * 
+		 * @param members
+		 *            The numbers of the passengers.
+		 * @return A new list of the passengers, in the order of their
+		 *         numbers, that can't be modified.
+		 */
+		private List<Passenger> passengersOf(BitSet members) {
+			List<Passenger> present = new ArrayList<Passenger>(
+					members.cardinality());
+			for (int i = members.nextSetBit(0); i >= 0; i = members
+					.nextSetBit(i + 1)) {
+				present.add(passengers[i]);
+			}
+			return Collections.unmodifiableList(present);
+		}
+	}
+}
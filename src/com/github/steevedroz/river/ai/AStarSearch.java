@@ -0,0 +1,102 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.steevedroz.utils.LongHashMap;
+import com.github.steevedroz.utils.LongList;
+
+/**
+ * This class searches the shortest path between two packed states, always
+ * expanding the state whose number of crossings so far plus the estimate of
+ * a {@link Heuristic} is the lowest. As long as the heuristic never
+ * overestimates, the solution is a shortest one, and the better the estimate,
+ * the less states are expanded.<br />
+ * <br />
+ * The open states are kept in buckets indexed by their estimated total, the
+ * last state added to the lowest bucket being expanded first.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class AStarSearch extends PackedSearch {
+	/**
+	 * The heuristic that estimates the crossings left.
+	 */
+	private Heuristic heuristic;
+
+	/**
+	 * This constructor sets up a search on the states of an encoding.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 * @param heuristic
+	 *            The heuristic that estimates the crossings left.
+	 */
+	public AStarSearch(RiverEncoding encoding, Heuristic heuristic) {
+		super(encoding);
+		this.heuristic = heuristic;
+	}
+
+	@Override
+	public long[] search(long start, long goal) {
+		if (start == RiverEncoding.INVALID || goal == RiverEncoding.INVALID) {
+			return null;
+		}
+		expanded = 0;
+		heuristic.prepare(encoding, goal);
+		LongHashMap parents = new LongHashMap(RiverEncoding.INVALID);
+		LongHashMap costs = new LongHashMap(RiverEncoding.INVALID);
+		List<LongList> buckets = new ArrayList<LongList>();
+		parents.put(start, RiverEncoding.INVALID);
+		costs.put(start, 0);
+		push(buckets, heuristic.estimate(start), start, 0);
+
+		for (int bucket = 0; bucket < buckets.size(); bucket++) {
+			LongList open = buckets.get(bucket);
+			while (!open.isEmpty()) {
+				long cost = open.removeLast();
+				long current = open.removeLast();
+				if (cost > costs.get(current, Long.MAX_VALUE)) {
+					continue;
+				}
+				if (current == goal) {
+					return reverse(chain(parents, current));
+				}
+				expanded++;
+				for (long load : encoding.loads(current)) {
+					long child = encoding.cross(current, load);
+					if (child == RiverEncoding.INVALID
+							|| cost + 1 >= costs.get(child, Long.MAX_VALUE)) {
+						continue;
+					}
+					costs.put(child, cost + 1);
+					parents.put(child, current);
+					int total = (int) cost + 1 + heuristic.estimate(child);
+					push(buckets, Math.max(total, bucket), child, cost + 1);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a state to the bucket of its estimated total.
+	 * 
+	 * @param buckets
+	 *            The buckets, each holding pairs of state and cost.
+	 * @param total
+	 *            The estimated total number of crossings.
+	 * @param state
+	 *            The state.
+	 * @param cost
+	 *            The number of crossings from the original state.
+	 */
+	private void push(List<LongList> buckets, int total, long state, long cost) {
+		while (buckets.size() <= total) {
+			buckets.add(new LongList());
+		}
+		buckets.get(total).add(state);
+		buckets.get(total).add(cost);
+	}
+}
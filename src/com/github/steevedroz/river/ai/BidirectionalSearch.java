@@ -0,0 +1,117 @@
+package com.github.steevedroz.river.ai;
+
+import com.github.steevedroz.utils.LongHashMap;
+import com.github.steevedroz.utils.LongList;
+
+/**
+ * This class searches the shortest path between two packed states with two
+ * breadth-first searches: one forward from the original state and one
+ * backward from the goal, using reversed crossings. The smallest frontier is
+ * expanded, one whole layer at a time, until the two searches meet.<br />
+ * <br />
+ * When a layer makes the searches meet, the layer is finished and the shortest
+ * of the paths through the meeting states is kept, so the result is as short
+ * as the one of a {@link BreadthFirstSearch}.
+ * 
+ * @author Steeve Droz
+ * @see RiverEncoding#uncross(long, long)
+ * 
+ */
+public class BidirectionalSearch extends PackedSearch {
+	/**
+	 * This constructor sets up a search on the states of an encoding.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 */
+	public BidirectionalSearch(RiverEncoding encoding) {
+		super(encoding);
+	}
+
+	@Override
+	public long[] search(long start, long goal) {
+		if (start == RiverEncoding.INVALID || goal == RiverEncoding.INVALID) {
+			return null;
+		}
+		if (start == goal) {
+			return new long[] { start };
+		}
+		LongHashMap parents = new LongHashMap(RiverEncoding.INVALID);
+		LongHashMap successors = new LongHashMap(RiverEncoding.INVALID);
+		parents.put(start, RiverEncoding.INVALID);
+		successors.put(goal, RiverEncoding.INVALID);
+		LongList forward = new LongList();
+		LongList backward = new LongList();
+		forward.add(start);
+		backward.add(goal);
+
+		expanded = 0;
+		while (!forward.isEmpty() && !backward.isEmpty()) {
+			LongList next = new LongList();
+			long meeting;
+			if (forward.size() <= backward.size()) {
+				meeting = expand(forward, next, parents, successors, true);
+				forward = next;
+			} else {
+				meeting = expand(backward, next, successors, parents, false);
+				backward = next;
+			}
+			if (meeting != RiverEncoding.INVALID) {
+				long[] head = reverse(chain(parents, meeting));
+				long[] tail = chain(successors, meeting);
+				long[] path = new long[head.length + tail.length - 1];
+				System.arraycopy(head, 0, path, 0, head.length);
+				System.arraycopy(tail, 1, path, head.length, tail.length - 1);
+				return path;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the next layer of a search.
+	 * 
+	 * @param frontier
+	 *            The last layer of the search.
+	 * @param next
+	 *            The list that receives the next layer.
+	 * @param links
+	 *            The links of this search, each new state being linked to the
+	 *            state it has been reached from.
+	 * @param others
+	 *            The links of the other search.
+	 * @param forward
+	 *            Whether this search goes forward, from the original state.
+	 * @return The meeting state of the shortest path found through this
+	 *         layer, or {@link RiverEncoding#INVALID} if the searches haven't
+	 *         met.
+	 */
+	private long expand(LongList frontier, LongList next, LongHashMap links,
+			LongHashMap others, boolean forward) {
+		long meeting = RiverEncoding.INVALID;
+		int shortest = Integer.MAX_VALUE;
+		expanded += frontier.size();
+		for (int i = 0; i < frontier.size(); i++) {
+			long current = frontier.get(i);
+			long[] loads = forward ? encoding.loads(current) : encoding
+					.arrivals(current);
+			for (long load : loads) {
+				long child = forward ? encoding.cross(current, load)
+						: encoding.uncross(current, load);
+				if (child == RiverEncoding.INVALID
+						|| !links.putIfAbsent(child, current)) {
+					continue;
+				}
+				next.add(child);
+				if (others.containsKey(child)) {
+					int length = chain(others, child).length;
+					if (length < shortest) {
+						shortest = length;
+						meeting = child;
+					}
+				}
+			}
+		}
+		return meeting;
+	}
+}
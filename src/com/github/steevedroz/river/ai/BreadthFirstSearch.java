@@ -0,0 +1,80 @@
+package com.github.steevedroz.river.ai;
+
+import com.github.steevedroz.utils.LongHashMap;
+import com.github.steevedroz.utils.LongRingBuffer;
+
+/**
+ * This class searches the shortest path between two packed states, trying
+ * every state at a given number of crossings before going any further. Only
+ * the packed states and their parent are kept in memory.<br />
+ * <br />
+ * The states waiting to be expanded are kept in a {@link LongRingBuffer}, so
+ * that a very wide layer is partly written to a temporary file instead of
+ * filling the memory.
+ * 
+ * @author Steeve Droz
+ * @see RiverEncoding
+ * 
+ */
+public class BreadthFirstSearch extends PackedSearch {
+	/**
+	 * The number of states waiting to be expanded that are kept in memory.
+	 */
+	private int frontierLimit;
+
+	/**
+	 * This constructor sets up a search on the states of an encoding.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 */
+	public BreadthFirstSearch(RiverEncoding encoding) {
+		this(encoding, LongRingBuffer.LIMIT);
+	}
+
+	/**
+	 * This constructor sets up a search on the states of an encoding, with a
+	 * given number of states waiting to be expanded kept in memory.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 * @param frontierLimit
+	 *            The number of states kept in memory, the others being
+	 *            written to a temporary file.
+	 */
+	public BreadthFirstSearch(RiverEncoding encoding, int frontierLimit) {
+		super(encoding);
+		this.frontierLimit = frontierLimit;
+	}
+
+	@Override
+	public long[] search(long start, long goal) {
+		if (start == RiverEncoding.INVALID || goal == RiverEncoding.INVALID) {
+			return null;
+		}
+		expanded = 0;
+		LongHashMap parents = new LongHashMap(RiverEncoding.INVALID);
+		LongRingBuffer queue = new LongRingBuffer(frontierLimit);
+		try {
+			parents.put(start, RiverEncoding.INVALID);
+			queue.add(start);
+			while (!queue.isEmpty()) {
+				long current = queue.remove();
+				if (current == goal) {
+					return reverse(chain(parents, current));
+				}
+				expanded++;
+				for (long load : encoding.loads(current)) {
+					long child = encoding.cross(current, load);
+					if (child != RiverEncoding.INVALID
+							&& parents.putIfAbsent(child, current)) {
+						queue.add(child);
+					}
+				}
+			}
+			return null;
+		} finally {
+			queue.close();
+		}
+	}
+}
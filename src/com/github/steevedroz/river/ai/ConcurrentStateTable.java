@@ -0,0 +1,299 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.steevedroz.utils.LongHashMap;
+
+/**
+ * This class is a hash table from packed states to <code>long</code> values
+ * that many threads can use at the same time without locking. Each slot holds
+ * a state and its value, typically a way to find the predecessor of the
+ * state, in two {@link AtomicLongArray}s updated by compare-and-set.<br />
+ * <br />
+ * Values can only be lowered, see {@link #putIfLower(long, long)}, which
+ * makes every update commutative: whatever the order in which threads update
+ * a state, the value ends up being the lowest one.<br />
+ * <br />
+ * When the table gets half full, a table twice as large is created and the
+ * slots are moved into it by chunks. Every thread that meets a moved slot
+ * helps moving the remaining chunks before going on in the new table, so the
+ * workers never wait for a lock and no single thread has to do the whole
+ * copy.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class ConcurrentStateTable {
+	/**
+	 * The default number of slots.
+	 */
+	public static final int CAPACITY = 1 << 12;
+	/**
+	 * The value of a state that isn't in the table.
+	 */
+	public static final long NO_VALUE = Long.MAX_VALUE;
+	/**
+	 * The number of slots moved at once when the table grows.
+	 */
+	private static final int CHUNK = 1024;
+	/**
+	 * The key of a free slot.
+	 */
+	private static final long EMPTY = RiverEncoding.INVALID;
+	/**
+	 * The key of a slot that has been moved to the next table. It can't be a
+	 * canonical state, since the bit 62 of a packed state is never used.
+	 */
+	private static final long MOVED = -2L;
+
+	/**
+	 * The table currently in use.
+	 */
+	private AtomicReference<Level> current;
+
+	/**
+	 * This constructor creates an empty table.
+	 * 
+	 * @param capacity
+	 *            The initial number of slots, rounded up to a power of two.
+	 */
+	public ConcurrentStateTable(int capacity) {
+		current = new AtomicReference<Level>(new Level(Integer.highestOneBit(Math
+				.max(CHUNK, capacity) - 1) << 1));
+	}
+
+	/**
+	 * Returns the value of a state.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return The value of the state, or {@link #NO_VALUE} if it isn't in the
+	 *         table.
+	 */
+	public long get(long state) {
+		Level level = current.get();
+		while (true) {
+			int mask = level.keys.length() - 1;
+			int slot = LongHashMap.hash(state) & mask;
+			while (true) {
+				long key = level.keys.get(slot);
+				if (key == state) {
+					return level.values.get(slot);
+				}
+				if (key == EMPTY) {
+					return NO_VALUE;
+				}
+				if (key == MOVED) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			level = level.finishMove();
+		}
+	}
+
+	/**
+	 * Adds a state with a value, or lowers the value of a state already in the
+	 * table.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @param value
+	 *            The value, lower than {@link #NO_VALUE}.
+	 * @return <code>true</code> if this call added the state,
+	 *         <code>false</code> if it was already in the table.
+	 */
+	public boolean putIfLower(long state, long value) {
+		Level level = current.get();
+		while (true) {
+			int mask = level.keys.length() - 1;
+			int slot = LongHashMap.hash(state) & mask;
+			boolean added = false;
+			while (true) {
+				long key = level.keys.get(slot);
+				if (key == EMPTY) {
+					if (!level.keys.compareAndSet(slot, EMPTY, state)) {
+						continue;
+					}
+					added = true;
+					key = state;
+				}
+				if (key == MOVED) {
+					break;
+				}
+				if (key == state) {
+					lower(level.values, slot, value);
+					if (level.keys.get(slot) == state) {
+						if (added) {
+							level.added();
+						}
+						return added;
+					}
+					// The slot was moved meanwhile: the new table may lack the
+					// value, so it is lowered there too.
+					level.finishMove();
+					putIfLower(state, value);
+					return added;
+				}
+				slot = (slot + 1) & mask;
+			}
+			level = level.finishMove();
+		}
+	}
+
+	/**
+	 * Returns the number of states in the table.
+	 * 
+	 * @return The number of states.
+	 */
+	public int size() {
+		Level level = current.get();
+		while (level.next.get() != null) {
+			level = level.finishMove();
+		}
+		return level.size.get();
+	}
+
+	/**
+	 * Lowers the value of a slot.
+	 * 
+	 * @param values
+	 *            The values of a table.
+	 * @param slot
+	 *            The slot.
+	 * @param value
+	 *            The new value, only written if it is lower.
+	 */
+	private static void lower(AtomicLongArray values, int slot, long value) {
+		long previous = values.get(slot);
+		while (value < previous && !values.compareAndSet(slot, previous, value)) {
+			previous = values.get(slot);
+		}
+	}
+
+	/**
+	 * Lowers the value of a state in a table that no thread is adding states
+	 * to yet, except the threads moving slots into it.
+	 * 
+	 * @param level
+	 *            The table.
+	 * @param state
+	 *            The packed state.
+	 * @param value
+	 *            The value.
+	 */
+	private static void lower(Level level, long state, long value) {
+		int mask = level.keys.length() - 1;
+		int slot = LongHashMap.hash(state) & mask;
+		while (true) {
+			long key = level.keys.get(slot);
+			if (key == EMPTY
+					&& !level.keys.compareAndSet(slot, EMPTY, state)) {
+				continue;
+			}
+			if (key == EMPTY || key == state) {
+				lower(level.values, slot, value);
+				if (key == EMPTY) {
+					level.size.incrementAndGet();
+				}
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * This class is one table, and the state of its move to a larger table.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private class Level {
+		/**
+		 * The state of each slot.
+		 */
+		private AtomicLongArray keys;
+		/**
+		 * The value of each slot.
+		 */
+		private AtomicLongArray values;
+		/**
+		 * The number of states.
+		 */
+		private AtomicInteger size;
+		/**
+		 * The larger table, once the move has started.
+		 */
+		private AtomicReference<Level> next;
+		/**
+		 * The first slot of the next chunk to move.
+		 */
+		private AtomicInteger cursor;
+		/**
+		 * The number of slots moved.
+		 */
+		private AtomicInteger moved;
+
+		/**
+		 * This constructor creates an empty table.
+		 * 
+		 * @param capacity
+		 *            The number of slots, a power of two.
+		 */
+		private Level(int capacity) {
+			keys = new AtomicLongArray(capacity);
+			values = new AtomicLongArray(capacity);
+			for (int i = 0; i < capacity; i++) {
+				keys.set(i, EMPTY);
+				values.set(i, NO_VALUE);
+			}
+			size = new AtomicInteger();
+			next = new AtomicReference<Level>();
+			cursor = new AtomicInteger();
+			moved = new AtomicInteger();
+		}
+
+		/**
+		 * Counts a new state and starts the move to a larger table if this
+		 * one is half full.
+		 */
+		private void added() {
+			if (size.incrementAndGet() * 2 > keys.length()
+					&& next.get() == null
+					&& next.compareAndSet(null, new Level(keys.length() * 2))) {
+				finishMove();
+			}
+		}
+
+		/**
+		 * Helps moving this table into the next one until every slot is
+		 * moved.
+		 * 
+		 * @return The next table.
+		 */
+		private Level finishMove() {
+			Level target = next.get();
+			while (moved.get() < keys.length()) {
+				int from = cursor.getAndAdd(CHUNK);
+				if (from >= keys.length()) {
+					Thread.yield();
+					continue;
+				}
+				for (int slot = from; slot < from + CHUNK; slot++) {
+					long key = keys.get(slot);
+					while (!keys.compareAndSet(slot, key, MOVED)) {
+						key = keys.get(slot);
+					}
+					if (key != EMPTY) {
+						lower(target, key, values.get(slot));
+					}
+				}
+				moved.addAndGet(CHUNK);
+			}
+			current.compareAndSet(this, target);
+			return target;
+		}
+	}
+}
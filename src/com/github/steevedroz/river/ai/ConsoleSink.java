@@ -0,0 +1,24 @@
+package com.github.steevedroz.river.ai;
+
+import com.github.steevedroz.river.River;
+
+/**
+ * This sink prints each position of the solution on the standard output, as
+ * given by {@link RiverState#getState()}, or "No solution" if the problem has
+ * no solution.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class ConsoleSink implements SolveSink {
+	@Override
+	public void accept(SolveResult result) {
+		if (!result.isSolved()) {
+			System.out.println("No solution");
+			return;
+		}
+		for (River river : result.getStates()) {
+			System.out.println(new RiverState(river).getState());
+		}
+	}
+}
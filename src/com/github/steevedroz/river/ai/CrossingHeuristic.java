@@ -0,0 +1,86 @@
+package com.github.steevedroz.river.ai;
+
+/**
+ * This heuristic counts the crossings needed to carry the weight that is on
+ * the wrong shore, as if the boat was always full.<br />
+ * <br />
+ * If a weight <code>W</code> must go from the left shore to the right shore,
+ * the boat must cross at least <code>W / maxWeight</code> times in that
+ * direction, rounded up, and the same goes the other way. As the boat
+ * alternates between both directions and must end on the shore of the goal,
+ * this gives a lower bound of the number of crossings.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class CrossingHeuristic implements Heuristic {
+	/**
+	 * The encoding of the river being solved.
+	 */
+	private RiverEncoding encoding;
+	/**
+	 * The goal.
+	 */
+	private long goal;
+	/**
+	 * The weight of the passengers of each kind.
+	 */
+	private int[] weights;
+	/**
+	 * The number of passengers of each kind on the left shore in the goal.
+	 */
+	private int[] goalLeft;
+
+	@Override
+	public void prepare(RiverEncoding encoding, long goal) {
+		this.encoding = encoding;
+		this.goal = goal;
+		weights = new int[encoding.getKindCount()];
+		goalLeft = new int[encoding.getKindCount()];
+		for (int kind = 0; kind < weights.length; kind++) {
+			long passengers = encoding.getKind(kind);
+			weights[kind] = encoding.weight(Long.lowestOneBit(passengers));
+			goalLeft[kind] = Long.bitCount(encoding.left(goal) & passengers);
+		}
+	}
+
+	@Override
+	public int estimate(long state) {
+		if (state == goal) {
+			return 0;
+		}
+		int maxWeight = encoding.getMaxWeight();
+		if (!encoding.isEmptyOnArrival() || maxWeight <= 0) {
+			return 1;
+		}
+		int toRight = 0;
+		int toLeft = 0;
+		for (int kind = 0; kind < weights.length; kind++) {
+			int extra = Long.bitCount(encoding.left(state)
+					& encoding.getKind(kind))
+					- goalLeft[kind];
+			if (extra > 0) {
+				toRight += extra * weights[kind];
+			} else {
+				toLeft -= extra * weights[kind];
+			}
+		}
+		int rightwards = (toRight + maxWeight - 1) / maxWeight;
+		int leftwards = (toLeft + maxWeight - 1) / maxWeight;
+		boolean right = encoding.isBoatOnRight(state);
+		boolean goalRight = encoding.isBoatOnRight(goal);
+
+		int away = right ? leftwards : rightwards;
+		int back = right ? rightwards : leftwards;
+
+		int crossings = 1;
+		while (true) {
+			boolean endsOnGoalShore = (crossings % 2 == 1) != (right == goalRight);
+			if (endsOnGoalShore && (crossings + 1) / 2 >= away
+					&& crossings / 2 >= back) {
+				return crossings;
+			}
+			crossings++;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.github.steevedroz.river.ai;
+
+/**
+ * This interface describes an estimate of the number of crossings left
+ * between a packed state and the goal. It guides an {@link AStarSearch}.<br />
+ * <br />
+ * The estimate must never be greater than the real number of crossings,
+ * otherwise the solution found may not be the shortest one.
+ * 
+ * @author Steeve Droz
+ * @see RiverSolver#setHeuristic(Heuristic)
+ * 
+ */
+public interface Heuristic {
+	/**
+	 * Prepares the heuristic for a search. It is called once before any call
+	 * to {@link #estimate(long)}.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river being solved.
+	 * @param goal
+	 *            The canonical goal.
+	 */
+	public void prepare(RiverEncoding encoding, long goal);
+
+	/**
+	 * Returns a lower bound of the number of crossings needed to reach the
+	 * goal.
+	 * 
+	 * @param state
+	 *            The canonical state.
+	 * @return The estimated number of crossings.
+	 */
+	public int estimate(long state);
+}
@@ -0,0 +1,135 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.Arrays;
+
+/**
+ * This class searches the shortest path between two packed states with
+ * depth-first searches limited by an increasing bound on the number of
+ * crossings plus the estimate of a {@link Heuristic} (IDA*).<br />
+ * <br />
+ * Only the current path is kept, the state being a single <code>long</code>
+ * that is moved in place, plus a {@link TranspositionTable} of fixed size
+ * that avoids exploring the same state twice in an iteration. The memory used
+ * therefore doesn't grow with the number of states explored, at the cost of
+ * exploring some states again at each iteration.<br />
+ * <br />
+ * The bound stops growing when no state went over it, or when it reaches
+ * {@link RiverEncoding#getStateCount()}. With a table much smaller than the
+ * number of reachable states, proving that a puzzle has no solution can take
+ * a very long time.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class IterativeDeepeningSearch extends PackedSearch {
+	/**
+	 * The value returned by {@link #explore(long, int, int)} when the goal has
+	 * been found.
+	 */
+	private static final int FOUND = -1;
+
+	/**
+	 * The heuristic that estimates the crossings left.
+	 */
+	private Heuristic heuristic;
+	/**
+	 * The states already reached in the current iteration.
+	 */
+	private TranspositionTable table;
+	/**
+	 * The goal.
+	 */
+	private long goal;
+	/**
+	 * The states of the current path.
+	 */
+	private long[] path;
+	/**
+	 * The length of the path once the goal has been found.
+	 */
+	private int length;
+
+	/**
+	 * This constructor sets up a search on the states of an encoding.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 * @param heuristic
+	 *            The heuristic that estimates the crossings left.
+	 * @param tableSize
+	 *            The number of entries of the transposition table.
+	 */
+	public IterativeDeepeningSearch(RiverEncoding encoding,
+			Heuristic heuristic, int tableSize) {
+		super(encoding);
+		this.heuristic = heuristic;
+		this.table = new TranspositionTable(tableSize);
+	}
+
+	@Override
+	public long[] search(long start, long goal) {
+		if (start == RiverEncoding.INVALID || goal == RiverEncoding.INVALID) {
+			return null;
+		}
+		expanded = 0;
+		heuristic.prepare(encoding, goal);
+		this.goal = goal;
+		this.path = new long[16];
+		int bound = heuristic.estimate(start);
+		while (bound != Integer.MAX_VALUE && bound < encoding.getStateCount()) {
+			table.nextIteration();
+			int next = explore(start, 0, bound);
+			if (next == FOUND) {
+				return Arrays.copyOf(path, length);
+			}
+			bound = next;
+		}
+		return null;
+	}
+
+	/**
+	 * Explores the states that can be reached from a state without going over
+	 * the bound.
+	 * 
+	 * @param state
+	 *            The state, added to the path at position <code>cost</code>.
+	 * @param cost
+	 *            The number of crossings from the original state.
+	 * @param bound
+	 *            The maximum number of crossings plus estimate.
+	 * @return {@link #FOUND} if the goal has been reached, otherwise the
+	 *         lowest number of crossings plus estimate that went over the
+	 *         bound, or {@link Integer#MAX_VALUE} if there was none.
+	 */
+	private int explore(long state, int cost, int bound) {
+		int total = cost + heuristic.estimate(state);
+		if (total > bound) {
+			return total;
+		}
+		if (cost == path.length) {
+			path = Arrays.copyOf(path, cost * 2);
+		}
+		path[cost] = state;
+		if (state == goal) {
+			length = cost + 1;
+			return FOUND;
+		}
+		if (!table.visit(state, cost)) {
+			return Integer.MAX_VALUE;
+		}
+		expanded++;
+		int next = Integer.MAX_VALUE;
+		for (long load : encoding.loads(state)) {
+			long child = encoding.cross(state, load);
+			if (child == RiverEncoding.INVALID) {
+				continue;
+			}
+			int result = explore(child, cost + 1, bound);
+			if (result == FOUND) {
+				return FOUND;
+			}
+			next = Math.min(next, result);
+		}
+		return next;
+	}
+}
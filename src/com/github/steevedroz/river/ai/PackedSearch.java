@@ -0,0 +1,97 @@
+package com.github.steevedroz.river.ai;
+
+import com.github.steevedroz.utils.LongHashMap;
+
+/**
+ * This abstract class defines a search algorithm that explores the packed
+ * states of a river.
+ * 
+ * @author Steeve Droz
+ * @see RiverEncoding
+ * @see SearchMode
+ * 
+ */
+public abstract class PackedSearch {
+	/**
+	 * The encoding of the river being solved.
+	 */
+	protected RiverEncoding encoding;
+	/**
+	 * The number of states expanded by the last search.
+	 */
+	protected long expanded;
+
+	/**
+	 * This constructor sets up a search on the states of an encoding.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 */
+	public PackedSearch(RiverEncoding encoding) {
+		this.encoding = encoding;
+	}
+
+	/**
+	 * This method searches the shortest sequence of crossings that brings the
+	 * river from <code>start</code> to <code>goal</code>.
+	 * 
+	 * @param start
+	 *            The canonical original state.
+	 * @param goal
+	 *            The canonical goal.
+	 * @return Every state from <code>start</code> to <code>goal</code>, or
+	 *         <code>null</code> if the goal can't be reached.
+	 */
+	public abstract long[] search(long start, long goal);
+
+	/**
+	 * Returns the number of states whose crossings have been tried by the
+	 * last search.
+	 * 
+	 * @return The number of states expanded.
+	 */
+	public long getExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * Follows the links from a state until a state with no link.
+	 * 
+	 * @param links
+	 *            The parent, or successor, of each reached state.
+	 *            {@link RiverEncoding#INVALID} marks the end of the chain.
+	 * @param first
+	 *            The first state of the chain.
+	 * @return Every state from <code>first</code> to the end of the chain.
+	 */
+	protected static long[] chain(LongHashMap links, long first) {
+		int length = 0;
+		for (long state = first; state != RiverEncoding.INVALID; state = links
+				.get(state, RiverEncoding.INVALID)) {
+			length++;
+		}
+		long[] chain = new long[length];
+		length = 0;
+		for (long state = first; state != RiverEncoding.INVALID; state = links
+				.get(state, RiverEncoding.INVALID)) {
+			chain[length++] = state;
+		}
+		return chain;
+	}
+
+	/**
+	 * Reverses an array in place.
+	 * 
+	 * @param states
+	 *            The array.
+	 * @return The same array.
+	 */
+	protected static long[] reverse(long[] states) {
+		for (int i = 0, j = states.length - 1; i < j; i++, j--) {
+			long state = states[i];
+			states[i] = states[j];
+			states[j] = state;
+		}
+		return states;
+	}
+}
@@ -0,0 +1,222 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.steevedroz.utils.LongHashMap;
+import com.github.steevedroz.utils.LongList;
+
+/**
+ * This class is a breadth-first search that expands each layer of states on
+ * several threads of a {@link ForkJoinPool}.<br />
+ * <br />
+ * Every state is numbered in the order it is discovered. The reached states
+ * are kept in a {@link ConcurrentStateTable} whose value is the priority of
+ * the move that reached the state: the number of the parent followed by the
+ * position of the load in {@link RiverEncoding#loads(long)}. Since a parent
+ * of an earlier layer always has a lower number, a state keeps the move that
+ * reached it first, and within a layer the move of lowest priority wins. The
+ * next layer is then sorted by priority. This is exactly the order in which a
+ * {@link BreadthFirstSearch} discovers the states, so the solution is the
+ * same whatever the number of threads.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class ParallelBreadthFirstSearch extends PackedSearch {
+	/**
+	 * The number of states of a layer below which a task isn't split.
+	 */
+	public static final int THRESHOLD = 64;
+	/**
+	 * The number of bits of a priority that hold the position of the load.
+	 */
+	private static final int LOAD_BITS = 24;
+	/**
+	 * The priority of the starting state, which has no parent.
+	 */
+	private static final long ROOT = -1L;
+
+	/**
+	 * The number of threads.
+	 */
+	private int threads;
+
+	/**
+	 * This constructor sets up a search on the states of an encoding.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 * @param threads
+	 *            The number of threads.
+	 */
+	public ParallelBreadthFirstSearch(RiverEncoding encoding, int threads) {
+		super(encoding);
+		this.threads = threads;
+	}
+
+	@Override
+	public long[] search(long start, long goal) {
+		if (start == RiverEncoding.INVALID || goal == RiverEncoding.INVALID) {
+			return null;
+		}
+		ConcurrentStateTable reached = new ConcurrentStateTable(
+				ConcurrentStateTable.CAPACITY);
+		reached.putIfLower(start, ROOT);
+		LongList states = new LongList();
+		states.add(start);
+		int from = 0;
+		expanded = 0;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			while (from < states.size()) {
+				int to = states.size();
+				for (int i = from; i < to; i++) {
+					if (states.get(i) == goal) {
+						return path(states, reached, goal);
+					}
+				}
+				Expansion expansion = new Expansion(states, from, to, reached);
+				pool.invoke(expansion);
+				expanded += to - from;
+				addLayer(states, reached, expansion.added);
+				from = to;
+			}
+			return null;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Sorts the states discovered by a layer by priority and numbers them.
+	 * 
+	 * @param states
+	 *            Every state by number, updated.
+	 * @param reached
+	 *            The priority of each reached state.
+	 * @param added
+	 *            The states discovered by the layer.
+	 */
+	private void addLayer(LongList states, ConcurrentStateTable reached,
+			LongList added) {
+		long[] priorities = new long[added.size()];
+		LongHashMap byPriority = new LongHashMap(RiverEncoding.INVALID);
+		for (int i = 0; i < priorities.length; i++) {
+			priorities[i] = reached.get(added.get(i));
+			byPriority.put(priorities[i], added.get(i));
+		}
+		Arrays.sort(priorities);
+		for (long priority : priorities) {
+			states.add(byPriority.get(priority, RiverEncoding.INVALID));
+		}
+	}
+
+	/**
+	 * Follows the priorities back from a state to the starting state.
+	 * 
+	 * @param states
+	 *            Every state by number.
+	 * @param reached
+	 *            The priority of each reached state.
+	 * @param last
+	 *            The last state of the path.
+	 * @return The states from the starting state to <code>last</code>.
+	 */
+	private long[] path(LongList states, ConcurrentStateTable reached,
+			long last) {
+		LongList path = new LongList();
+		for (long state = last; state != RiverEncoding.INVALID;) {
+			path.add(state);
+			long priority = reached.get(state);
+			state = priority == ROOT ? RiverEncoding.INVALID : states
+					.get((int) (priority >>> LOAD_BITS));
+		}
+		return reverse(path.toArray());
+	}
+
+	/**
+	 * This task expands a range of states of a layer, splitting itself until
+	 * the range is small enough.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private class Expansion extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Every state by number. It is only read.
+		 */
+		private LongList states;
+		/**
+		 * The number of the first state of the range.
+		 */
+		private int from;
+		/**
+		 * The number after the range.
+		 */
+		private int to;
+		/**
+		 * The priority of each reached state.
+		 */
+		private ConcurrentStateTable reached;
+		/**
+		 * The states discovered by this task.
+		 */
+		private LongList added;
+
+		/**
+		 * This constructor creates a task for a range of a layer.
+		 * 
+		 * @param states
+		 *            Every state by number.
+		 * @param from
+		 *            The number of the first state of the range.
+		 * @param to
+		 *            The number after the range.
+		 * @param reached
+		 *            The priority of each reached state.
+		 */
+		private Expansion(LongList states, int from, int to,
+				ConcurrentStateTable reached) {
+			this.states = states;
+			this.from = from;
+			this.to = to;
+			this.reached = reached;
+			added = new LongList();
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				Expansion first = new Expansion(states, from, middle, reached);
+				Expansion second = new Expansion(states, middle, to, reached);
+				invokeAll(first, second);
+				added = first.added;
+				for (int i = 0; i < second.added.size(); i++) {
+					added.add(second.added.get(i));
+				}
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				long state = states.get(i);
+				long[] loads = encoding.loads(state);
+				if (loads.length >= 1 << LOAD_BITS) {
+					throw new IllegalStateException("Too many loads: "
+							+ loads.length);
+				}
+				for (int j = 0; j < loads.length; j++) {
+					long child = encoding.cross(state, loads[j]);
+					if (child != RiverEncoding.INVALID
+							&& reached.putIfLower(child, (long) i << LOAD_BITS
+									| j)) {
+						added.add(child);
+					}
+				}
+			}
+		}
+	}
+}
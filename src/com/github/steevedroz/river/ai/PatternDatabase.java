@@ -0,0 +1,279 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.utils.LongList;
+
+/**
+ * This heuristic looks up the exact number of crossings left in a simplified
+ * version of the puzzle, where only some kinds of passengers, the pattern,
+ * are taken into account and where nobody gets killed or needs a navigator.
+ * <br />
+ * <br />
+ * For each pattern, every position of the simplified puzzle is solved once
+ * when the search starts, and the number of crossings is stored in a table of
+ * one byte per position. As any real solution is also a solution of the
+ * simplified puzzle, the estimate never overestimates.<br />
+ * <br />
+ * Several disjoint patterns can be added, the estimate being the highest of
+ * their values. They are not added up since a single crossing moves the
+ * passengers of every pattern.<br />
+ * <br />
+ * <b>Example:</b>
+ * 
+ * <pre>
+ * PatternDatabase database = new PatternDatabase();
+ * database.addPattern(missionary, canibal);
+ * database.addPattern(boatman);
+ * solver.setHeuristic(database);
+ * solver.setMode(SearchMode.A_STAR);
+ * </pre>
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class PatternDatabase implements Heuristic {
+	/**
+	 * The maximum number of positions of a pattern.
+	 */
+	public static final int MAX_SIZE = 1 << 26;
+	/**
+	 * The value of the positions that can't reach the goal.
+	 */
+	private static final int UNREACHED = 0xFF;
+
+	/**
+	 * The names of the passengers of each pattern.
+	 */
+	private List<List<String>> patterns;
+	/**
+	 * The encoding of the river being solved.
+	 */
+	private RiverEncoding encoding;
+	/**
+	 * The goal the tables have been built for.
+	 */
+	private long goal;
+	/**
+	 * The kinds of passengers of each pattern.
+	 */
+	private int[][] kinds;
+	/**
+	 * The number of crossings left for each position of each pattern.
+	 */
+	private byte[][] tables;
+
+	/**
+	 * This constructor creates a database with no pattern.
+	 */
+	public PatternDatabase() {
+		patterns = new ArrayList<List<String>>();
+	}
+
+	/**
+	 * Adds a pattern. Every passenger with the same name as one of the given
+	 * passengers is part of the pattern.
+	 * 
+	 * @param passengers
+	 *            The passengers of the pattern.
+	 * @throws IllegalArgumentException
+	 *             If a passenger is already part of another pattern.
+	 */
+	public void addPattern(Passenger... passengers) {
+		List<String> names = new ArrayList<String>();
+		for (Passenger passenger : passengers) {
+			for (List<String> pattern : patterns) {
+				if (pattern.contains(passenger.getName())) {
+					throw new IllegalArgumentException(passenger.getName()
+							+ " is already part of a pattern");
+				}
+			}
+			if (!names.contains(passenger.getName())) {
+				names.add(passenger.getName());
+			}
+		}
+		patterns.add(names);
+		encoding = null;
+	}
+
+	@Override
+	public void prepare(RiverEncoding encoding, long goal) {
+		if (this.encoding == encoding && this.goal == goal) {
+			return;
+		}
+		this.encoding = encoding;
+		this.goal = goal;
+		kinds = new int[patterns.size()][];
+		tables = new byte[patterns.size()][];
+		for (int i = 0; i < patterns.size(); i++) {
+			kinds[i] = kindsOf(patterns.get(i));
+			tables[i] = solve(kinds[i]);
+		}
+	}
+
+	@Override
+	public int estimate(long state) {
+		int estimate = 0;
+		for (int i = 0; i < tables.length; i++) {
+			int crossings = tables[i][index(kinds[i], state)] & 0xFF;
+			if (crossings != UNREACHED && crossings > estimate) {
+				estimate = crossings;
+			}
+		}
+		return estimate;
+	}
+
+	/**
+	 * Returns the kinds of the encoding whose name is part of a pattern.
+	 * 
+	 * @param names
+	 *            The names of the passengers of the pattern.
+	 * @return The kinds.
+	 */
+	private int[] kindsOf(List<String> names) {
+		int[] found = new int[encoding.getKindCount()];
+		int count = 0;
+		for (int kind = 0; kind < encoding.getKindCount(); kind++) {
+			Passenger passenger = encoding.getPassenger(Long
+					.numberOfTrailingZeros(encoding.getKind(kind)));
+			if (names.contains(passenger.getName())) {
+				found[count++] = kind;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Returns the position of a state in the table of a pattern. A position
+	 * is made of the shore of the boat and of the number of passengers of
+	 * each kind of the pattern on the right shore, passengers on the boat
+	 * being counted on the shore of the boat.
+	 * 
+	 * @param pattern
+	 *            The kinds of the pattern.
+	 * @param state
+	 *            The packed state.
+	 * @return The position.
+	 */
+	private int index(int[] pattern, long state) {
+		long right = encoding.right(state);
+		if (encoding.isBoatOnRight(state)) {
+			right |= encoding.aboard(state);
+		}
+		int index = 0;
+		for (int kind : pattern) {
+			long passengers = encoding.getKind(kind);
+			index = index * (Long.bitCount(passengers) + 1)
+					+ Long.bitCount(right & passengers);
+		}
+		return index * 2 + (encoding.isBoatOnRight(state) ? 1 : 0);
+	}
+
+	/**
+	 * Solves every position of the simplified puzzle of a pattern with a
+	 * breadth-first search from the goal. The crossings are the same both
+	 * ways, so the distance from the goal is the distance to the goal.
+	 * 
+	 * @param pattern
+	 *            The kinds of the pattern.
+	 * @return The number of crossings left for each position.
+	 */
+	private byte[] solve(int[] pattern) {
+		int[] sizes = new int[pattern.length];
+		int[] weights = new int[pattern.length];
+		long size = 2;
+		for (int i = 0; i < pattern.length; i++) {
+			long passengers = encoding.getKind(pattern[i]);
+			sizes[i] = Long.bitCount(passengers);
+			weights[i] = encoding.weight(Long.lowestOneBit(passengers));
+			size *= sizes[i] + 1;
+			if (size > MAX_SIZE) {
+				throw new IllegalArgumentException("The pattern has more than "
+						+ MAX_SIZE + " positions");
+			}
+		}
+		byte[] table = new byte[(int) size];
+		Arrays.fill(table, (byte) UNREACHED);
+
+		int start = index(pattern, goal);
+		table[start] = 0;
+		LongList queue = new LongList();
+		queue.add(start);
+		int[] counts = new int[pattern.length];
+		int[] moved = new int[pattern.length];
+		for (int head = 0; head < queue.size(); head++) {
+			int position = (int) queue.get(head);
+			int crossings = table[position] & 0xFF;
+			boolean right = position % 2 == 1;
+			for (int i = pattern.length - 1, rest = position / 2; i >= 0; i--) {
+				counts[i] = rest % (sizes[i] + 1);
+				rest /= sizes[i] + 1;
+			}
+			Arrays.fill(moved, 0);
+			do {
+				int next = 0;
+				for (int i = 0; i < pattern.length; i++) {
+					int count = right ? counts[i] - moved[i] : counts[i]
+							+ moved[i];
+					next = next * (sizes[i] + 1) + count;
+				}
+				next = next * 2 + (right ? 0 : 1);
+				if ((table[next] & 0xFF) == UNREACHED) {
+					table[next] = (byte) Math.min(crossings + 1, UNREACHED - 1);
+					queue.add(next);
+				}
+			} while (nextLoad(moved, counts, sizes, weights, right));
+		}
+		return table;
+	}
+
+	/**
+	 * Moves to the next load of the simplified puzzle, counting like an
+	 * odometer where each digit is the number of passengers of a kind.
+	 * 
+	 * @param moved
+	 *            The number of passengers of each kind in the load, updated.
+	 * @param counts
+	 *            The number of passengers of each kind on the right shore.
+	 * @param sizes
+	 *            The number of passengers of each kind.
+	 * @param weights
+	 *            The weight of the passengers of each kind.
+	 * @param right
+	 *            Whether the boat is on the right shore.
+	 * @return <code>false</code> if every load has been enumerated.
+	 */
+	private boolean nextLoad(int[] moved, int[] counts, int[] sizes,
+			int[] weights, boolean right) {
+		int maxWeight = encoding.getMaxWeight();
+		for (int i = 0; i < moved.length; i++) {
+			int available = right ? counts[i] : sizes[i] - counts[i];
+			moved[i]++;
+			if (moved[i] <= available && weight(moved, weights) <= maxWeight) {
+				return true;
+			}
+			moved[i] = 0;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the weight of a load of the simplified puzzle.
+	 * 
+	 * @param moved
+	 *            The number of passengers of each kind in the load.
+	 * @param weights
+	 *            The weight of the passengers of each kind.
+	 * @return The weight of the load.
+	 */
+	private int weight(int[] moved, int[] weights) {
+		int weight = 0;
+		for (int i = 0; i < moved.length; i++) {
+			weight += moved[i] * weights[i];
+		}
+		return weight;
+	}
+}
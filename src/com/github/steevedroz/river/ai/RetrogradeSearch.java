@@ -0,0 +1,62 @@
+package com.github.steevedroz.river.ai;
+
+import com.github.steevedroz.utils.LongList;
+
+/**
+ * This class builds the {@link Tablebase} of the goal, then follows the best
+ * crossing from the original state. Building the tablebase costs as much as
+ * a full breadth-first search, so it is only worth it when the same tablebase
+ * is queried from many positions, see {@link #getTablebase()}. The tablebase
+ * is kept, and only built again when the goal changes: searching again for
+ * the same goal, from any state, costs no expansion at all.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class RetrogradeSearch extends PackedSearch {
+	/**
+	 * The tablebase of the last goal searched.
+	 */
+	private Tablebase tablebase;
+
+	/**
+	 * This constructor sets up a search on the states of an encoding.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 */
+	public RetrogradeSearch(RiverEncoding encoding) {
+		super(encoding);
+	}
+
+	@Override
+	public long[] search(long start, long goal) {
+		if (start == RiverEncoding.INVALID || goal == RiverEncoding.INVALID) {
+			return null;
+		}
+		expanded = 0;
+		if (tablebase == null || tablebase.getGoal() != goal) {
+			tablebase = new Tablebase(encoding, goal);
+			expanded = tablebase.getSolvableCount();
+		}
+		if (tablebase.getDistance(start) == Tablebase.UNREACHED) {
+			return null;
+		}
+		LongList path = new LongList();
+		for (long state = start; state != RiverEncoding.INVALID; state = tablebase
+				.next(state)) {
+			path.add(state);
+		}
+		return path.toArray();
+	}
+
+	/**
+	 * Returns the tablebase of the last goal searched.
+	 * 
+	 * @return The tablebase, or <code>null</code> if nothing has been searched
+	 *         yet.
+	 */
+	public Tablebase getTablebase() {
+		return tablebase;
+	}
+}
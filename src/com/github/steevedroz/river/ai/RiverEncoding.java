@@ -0,0 +1,812 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.steevedroz.river.River;
+import com.github.steevedroz.river.location.Boat;
+import com.github.steevedroz.river.location.Location;
+import com.github.steevedroz.river.location.Shore;
+import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.relation.CompiledRelations;
+
+/**
+ * This class packs the position of a river in a single <code>long</code> so
+ * that the solver doesn't need to clone whole rivers to explore them.<br />
+ * <br />
+ * Each passenger of the river gets an index, passengers with the same name
+ * being given consecutive indexes. In a packed state:
+ * <dl>
+ * <dt>bit <code>i</code></dt>
+ * <dd>is set if the passenger <code>i</code> is on the right shore, cleared if
+ * it is on the left shore.</dd>
+ * <dt>bit <code>size + i</code></dt>
+ * <dd>is set if the passenger <code>i</code> is on the boat. These bits are
+ * only used when the boat isn't emptied on arrival, see
+ * {@link Boat#isEmptyOnArrival()}.</dd>
+ * <dt>bit 63</dt>
+ * <dd>is set if the boat is on the right shore.</dd>
+ * </dl>
+ * Passengers with the same name are interchangeable (see
+ * {@link Passenger#getName()}), so only the number of passengers of each kind
+ * on each location matters. Every state returned by this class is therefore
+ * canonical: inside the indexes of a kind, the passengers on the boat come
+ * first, then those on the right shore, then those on the left shore. Two
+ * positions that only differ by the swap of two passengers of a same kind give
+ * the same state, see {@link #canonical(long)}.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class RiverEncoding {
+	/**
+	 * The maximum number of passengers a river can hold to be packed, when the
+	 * boat is emptied on arrival.
+	 */
+	public static final int MAX_PASSENGERS = 62;
+	/**
+	 * The bit that is set when the boat is on the right shore.
+	 */
+	public static final long BOAT = 1L << 63;
+	/**
+	 * The value returned instead of a state when a move is not allowed.
+	 */
+	public static final long INVALID = -1L;
+	/**
+	 * The maximum number of entries of the cache of loads.
+	 */
+	public static final int CACHE_SIZE = 1 << 16;
+	/**
+	 * The loads of a shore from which nobody can board.
+	 */
+	private static final long[] NO_LOADS = {};
+
+	/**
+	 * The passengers, by index.
+	 */
+	private Passenger[] passengers;
+	/**
+	 * The passengers of each kind. Passengers of the same kind have the same
+	 * name.
+	 */
+	private long[] kindMasks;
+	/**
+	 * The index of the first passenger of each kind.
+	 */
+	private int[] kindStarts;
+	/**
+	 * The passengers that can navigate the boat.
+	 */
+	private long navigators;
+	/**
+	 * All the passengers.
+	 */
+	private long all;
+	/**
+	 * The maximum weight the boat can hold.
+	 */
+	private int maxWeight;
+	/**
+	 * Whether the passengers leave the boat on arrival.
+	 */
+	private boolean emptyOnArrival;
+	/**
+	 * The name of the left shore.
+	 */
+	private String leftName;
+	/**
+	 * The name of the right shore.
+	 */
+	private String rightName;
+	/**
+	 * The name of the boat.
+	 */
+	private String boatName;
+	/**
+	 * The loads already enumerated, by passengers and weight. It is shared by
+	 * the threads that use this encoding.
+	 */
+	private ConcurrentMap<Long, long[]> cache;
+	/**
+	 * The relations of the passengers, compiled into masks.
+	 */
+	private CompiledRelations relations;
+	/**
+	 * The answers of {@link #isSafe(long)} stored in advance, or
+	 * <code>null</code>.
+	 */
+	private SafeSubsetTable safeSubsets;
+	/**
+	 * The verdicts of {@link #isSafe(long)} already computed, or
+	 * <code>null</code>.
+	 */
+	private SurvivalCache survivalCache;
+
+	/**
+	 * This constructor indexes the passengers of a river.
+	 * 
+	 * @param river
+	 *            The river in its original position.
+	 * @throws IllegalArgumentException
+	 *             If the river can't be packed.
+	 * @see #supports(River)
+	 */
+	public RiverEncoding(River river) {
+		if (!supports(river)) {
+			throw new IllegalArgumentException(
+					"The river can't be packed in a long");
+		}
+		List<Passenger> sorted = passengersOf(river);
+		Collections.sort(sorted);
+		passengers = sorted.toArray(new Passenger[sorted.size()]);
+		List<Long> masks = new ArrayList<Long>();
+		for (int i = 0; i < passengers.length; i++) {
+			if (i == 0
+					|| !passengers[i].getName().equals(
+							passengers[i - 1].getName())) {
+				masks.add(0L);
+			}
+			int kind = masks.size() - 1;
+			masks.set(kind, masks.get(kind) | 1L << i);
+			if (passengers[i].isNavigator()) {
+				navigators |= 1L << i;
+			}
+		}
+		kindMasks = new long[masks.size()];
+		kindStarts = new int[masks.size()];
+		for (int i = 0; i < kindMasks.length; i++) {
+			kindMasks[i] = masks.get(i);
+			kindStarts[i] = Long.numberOfTrailingZeros(kindMasks[i]);
+		}
+		all = (1L << passengers.length) - 1;
+
+		Boat boat = river.getBoat();
+		maxWeight = boat.getMaxWeight();
+		emptyOnArrival = boat.isEmptyOnArrival();
+		leftName = river.getLeft().getName();
+		rightName = river.getRight().getName();
+		boatName = boat.getName();
+		cache = new ConcurrentHashMap<Long, long[]>();
+		relations = new CompiledRelations(Arrays.asList(passengers));
+	}
+
+	/**
+	 * Returns whether a river can be packed. It must not hold more than
+	 * {@link #MAX_PASSENGERS} passengers, or half of it if the boat isn't
+	 * emptied on arrival, and a boat emptied on arrival must be empty.
+	 * 
+	 * @param river
+	 *            The river.
+	 * @return Whether the river can be packed.
+	 */
+	public static boolean supports(River river) {
+		Boat boat = river.getBoat();
+		if (boat.getShore() != river.getLeft()
+				&& boat.getShore() != river.getRight()) {
+			return false;
+		}
+		if (boat.isEmptyOnArrival()) {
+			return boat.getPassengers().isEmpty()
+					&& passengersOf(river).size() <= MAX_PASSENGERS;
+		}
+		return passengersOf(river).size() <= MAX_PASSENGERS / 2;
+	}
+
+	/**
+	 * Packs a river that holds the same passengers as the original river.
+	 * Passengers are recognized by identity, then by name.
+	 * 
+	 * @param river
+	 *            The river to pack.
+	 * @return The packed state or {@link #INVALID} if the passengers don't
+	 *         match those of the original river.
+	 */
+	public long encode(River river) {
+		Map<Passenger, Integer> indexes = new IdentityHashMap<Passenger, Integer>();
+		for (int i = 0; i < passengers.length; i++) {
+			indexes.put(passengers[i], i);
+		}
+		long placed = 0;
+		long right = 0;
+		long aboard = 0;
+		Location[] locations = { river.getLeft(), river.getRight(),
+				river.getBoat() };
+		List<Passenger> unknown = new ArrayList<Passenger>();
+		List<Location> unknownLocations = new ArrayList<Location>();
+		for (Location location : locations) {
+			for (Passenger passenger : location.getPassengers()) {
+				Integer index = indexes.get(passenger);
+				if (index == null || (placed & 1L << index) != 0) {
+					unknown.add(passenger);
+					unknownLocations.add(location);
+					continue;
+				}
+				placed |= 1L << index;
+				right |= location == river.getRight() ? 1L << index : 0;
+				aboard |= location == river.getBoat() ? 1L << index : 0;
+			}
+		}
+		for (int i = 0; i < unknown.size(); i++) {
+			int index = indexOf(unknown.get(i).getName(), placed);
+			if (index < 0) {
+				return INVALID;
+			}
+			Location location = unknownLocations.get(i);
+			placed |= 1L << index;
+			right |= location == river.getRight() ? 1L << index : 0;
+			aboard |= location == river.getBoat() ? 1L << index : 0;
+		}
+		if (placed != all || (emptyOnArrival && aboard != 0)) {
+			return INVALID;
+		}
+		long state = right | aboard << passengers.length;
+		return canonical(river.getBoat().getShore() == river.getRight() ? state
+				| BOAT : state);
+	}
+
+	/**
+	 * Builds a river from a packed state.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return A new river in the given position.
+	 */
+	public River decode(long state) {
+		River river = new River(maxWeight);
+		river.getLeft().setName(leftName);
+		river.getRight().setName(rightName);
+		river.getBoat().setName(boatName);
+		river.getBoat().setEmptyOnArrival(emptyOnArrival);
+		long aboard = aboard(state);
+		for (int i = 0; i < passengers.length; i++) {
+			if ((aboard & 1L << i) != 0) {
+				river.getBoat().add(passengers[i]);
+			} else if ((state & 1L << i) != 0) {
+				river.getRight().add(passengers[i]);
+			} else {
+				river.getLeft().add(passengers[i]);
+			}
+		}
+		Shore shore = isBoatOnRight(state) ? river.getRight() : river
+				.getLeft();
+		river.getBoat().setShore(shore);
+		return river;
+	}
+
+	/**
+	 * Moves the boat from its shore to the other with a new load, the same way
+	 * {@link River#board(Passenger)} followed by {@link River#cross()} would.
+	 * 
+	 * @param state
+	 *            The packed state before the crossing.
+	 * @param load
+	 *            The passengers that board, all on the shore of the boat.
+	 * @return The canonical state after the crossing, or {@link #INVALID} if
+	 *         the boat is overloaded, has no navigator or if a passenger gets
+	 *         killed.
+	 */
+	public long cross(long state, long load) {
+		long shore = shore(state);
+		if (load == 0 || (load & ~shore) != 0) {
+			return INVALID;
+		}
+		long cargo = aboard(state) | load;
+		if (weight(cargo) > maxWeight || (cargo & navigators) == 0) {
+			return INVALID;
+		}
+		long other = isBoatOnRight(state) ? left(state) : right(state);
+		if (!isSafe(shore & ~load) || !isSafe(other) || !isSafe(cargo)) {
+			return INVALID;
+		}
+		if (!emptyOnArrival) {
+			return canonical((state & ~load | load << passengers.length) ^ BOAT);
+		}
+		if (!isSafe(other | load)) {
+			return INVALID;
+		}
+		return canonical((state ^ load) ^ BOAT);
+	}
+
+	/**
+	 * Undoes a crossing: returns the state from which the boat brought
+	 * <code>load</code> to reach <code>state</code>.
+	 * 
+	 * @param state
+	 *            The canonical state after the crossing.
+	 * @param load
+	 *            The passengers that boarded before the crossing. They are on
+	 *            the shore of the boat, or on the boat if it isn't emptied on
+	 *            arrival.
+	 * @return The canonical state before the crossing, or {@link #INVALID} if
+	 *         no valid crossing of <code>load</code> leads to
+	 *         <code>state</code>.
+	 * @see #arrivals(long)
+	 */
+	public long uncross(long state, long load) {
+		long previous;
+		if (emptyOnArrival) {
+			if (load == 0 || (load & ~shore(state)) != 0) {
+				return INVALID;
+			}
+			previous = (state ^ load) ^ BOAT;
+		} else {
+			if (load == 0 || (load & ~aboard(state)) != 0) {
+				return INVALID;
+			}
+			previous = (state & ~(load << passengers.length)) ^ BOAT;
+			previous |= isBoatOnRight(previous) ? load : 0;
+		}
+		return cross(previous, load) == state ? canonical(previous) : INVALID;
+	}
+
+	/**
+	 * Returns the canonical form of a state: the passengers of each kind are
+	 * reordered so that those on the boat come first, then those on the right
+	 * shore.
+	 * 
+	 * @param state
+	 *            A packed state.
+	 * @return The canonical state.
+	 */
+	public long canonical(long state) {
+		long right = right(state);
+		long aboard = aboard(state);
+		long canonicalRight = 0;
+		long canonicalAboard = 0;
+		for (int kind = 0; kind < kindMasks.length; kind++) {
+			int onBoat = Long.bitCount(aboard & kindMasks[kind]);
+			int onRight = Long.bitCount(right & kindMasks[kind]);
+			canonicalAboard |= ((1L << onBoat) - 1) << kindStarts[kind];
+			canonicalRight |= ((1L << onRight) - 1) << kindStarts[kind]
+					+ onBoat;
+		}
+		return canonicalRight | canonicalAboard << passengers.length
+				| state & BOAT;
+	}
+
+	/**
+	 * Returns every set of passengers that can board from the shore of the
+	 * boat without exceeding its maximum weight. As passengers of a same kind
+	 * are interchangeable, only one set is returned for each number of
+	 * passengers of each kind.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return The possible loads, as passenger masks. The array is shared and
+	 *         must not be modified.
+	 */
+	public long[] loads(long state) {
+		return loadsOf(shore(state), maxWeight - weight(aboard(state)));
+	}
+
+	/**
+	 * Returns every set of passengers that may have been brought by the last
+	 * crossing, that is the reverse of {@link #loads(long)}. Each of them is
+	 * to be checked with {@link #uncross(long, long)}.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return The possible loads, as passenger masks. The array is shared and
+	 *         must not be modified.
+	 */
+	public long[] arrivals(long state) {
+		return loadsOf(emptyOnArrival ? shore(state) : aboard(state),
+				maxWeight);
+	}
+
+	/**
+	 * Returns whether a state matches a goal, which is the case when each
+	 * location holds as many passengers of each kind in both states and the
+	 * boat is on the same shore.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @param goal
+	 *            The packed goal.
+	 * @return Whether the state matches the goal.
+	 */
+	public boolean matches(long state, long goal) {
+		return canonical(state) == canonical(goal);
+	}
+
+	/**
+	 * Returns the passengers on the left shore.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return The passengers on the left shore.
+	 */
+	public long left(long state) {
+		return ~state & all & ~aboard(state);
+	}
+
+	/**
+	 * Returns the passengers on the right shore.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return The passengers on the right shore.
+	 */
+	public long right(long state) {
+		return state & all & ~aboard(state);
+	}
+
+	/**
+	 * Returns the passengers on the boat.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return The passengers on the boat.
+	 */
+	public long aboard(long state) {
+		return emptyOnArrival ? 0 : state >>> passengers.length & all;
+	}
+
+	/**
+	 * Returns the passengers on the shore where the boat is.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return The passengers on the shore where the boat is.
+	 */
+	public long shore(long state) {
+		return isBoatOnRight(state) ? right(state) : left(state);
+	}
+
+	/**
+	 * Returns whether the boat is on the right shore.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @return Whether the boat is on the right shore.
+	 */
+	public boolean isBoatOnRight(long state) {
+		return (state & BOAT) != 0;
+	}
+
+	/**
+	 * Returns the total weight of some passengers.
+	 * 
+	 * @param mask
+	 *            The passengers.
+	 * @return Their weight.
+	 */
+	public int weight(long mask) {
+		int weight = 0;
+		for (long rest = mask; rest != 0; rest &= rest - 1) {
+			weight += passengers[Long.numberOfTrailingZeros(rest)].getWeight();
+		}
+		return weight;
+	}
+
+	/**
+	 * Returns whether the passengers survive together on a same location.
+	 * 
+	 * @param mask
+	 *            The passengers.
+	 * @return Whether they all survive.
+	 * @see Location#survival()
+	 */
+	public boolean isSafe(long mask) {
+		if (safeSubsets != null) {
+			return safeSubsets.isSafe(mask);
+		}
+		if (survivalCache == null) {
+			return relations.isSafe(mask);
+		}
+		long key = canonicalLocation(mask);
+		int verdict = survivalCache.get(key);
+		if (verdict != SurvivalCache.UNKNOWN) {
+			return verdict == SurvivalCache.SAFE;
+		}
+		boolean safe = relations.isSafe(mask);
+		survivalCache.put(key, safe);
+		return safe;
+	}
+
+	/**
+	 * Returns the canonical contents of a location: for each kind, the
+	 * passengers with the lowest indexes, as many as there are passengers of
+	 * that kind in the location. Two locations with the same number of
+	 * passengers of each kind have the same contents.
+	 * 
+	 * @param mask
+	 *            The passengers of the location.
+	 * @return The canonical passengers.
+	 */
+	public long canonicalLocation(long mask) {
+		long canonical = 0;
+		for (int kind = 0; kind < kindMasks.length; kind++) {
+			int count = Long.bitCount(mask & kindMasks[kind]);
+			canonical |= ((1L << count) - 1) << kindStarts[kind];
+		}
+		return canonical;
+	}
+
+	/**
+	 * Returns the passengers of a mask, in index order.
+	 * 
+	 * @param mask
+	 *            The passengers.
+	 * @return A new list of the passengers.
+	 */
+	public List<Passenger> passengersOf(long mask) {
+		List<Passenger> present = new ArrayList<Passenger>(Long.bitCount(mask));
+		for (long rest = mask; rest != 0; rest &= rest - 1) {
+			present.add(passengers[Long.numberOfTrailingZeros(rest)]);
+		}
+		return present;
+	}
+
+	/**
+	 * Returns the number of passengers.
+	 * 
+	 * @return The number of passengers.
+	 */
+	public int size() {
+		return passengers.length;
+	}
+
+	/**
+	 * Returns a passenger.
+	 * 
+	 * @param index
+	 *            The index of the passenger.
+	 * @return The passenger.
+	 */
+	public Passenger getPassenger(int index) {
+		return passengers[index];
+	}
+
+	/**
+	 * Returns the number of canonical states, whether they can be reached or
+	 * not.
+	 * 
+	 * @return The number of canonical states, or {@link Long#MAX_VALUE} if it
+	 *         doesn't fit in a <code>long</code>.
+	 */
+	public long getStateCount() {
+		long count = 2;
+		for (long kind : kindMasks) {
+			int size = Long.bitCount(kind);
+			long positions = emptyOnArrival ? size + 1 : (size + 1)
+					* (size + 2) / 2;
+			if (count > Long.MAX_VALUE / positions) {
+				return Long.MAX_VALUE;
+			}
+			count *= positions;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the relations of the passengers, compiled into masks.
+	 * 
+	 * @return The compiled relations.
+	 */
+	public CompiledRelations getRelations() {
+		return relations;
+	}
+
+	/**
+	 * Returns the table used by {@link #isSafe(long)}.
+	 * 
+	 * @return The table, or <code>null</code> if the relations are evaluated
+	 *         for each call.
+	 */
+	public SafeSubsetTable getSafeSubsets() {
+		return safeSubsets;
+	}
+
+	/**
+	 * Sets the table used by {@link #isSafe(long)}. It must be built from the
+	 * relations of this encoding.
+	 * 
+	 * @param safeSubsets
+	 *            The table, or <code>null</code> to evaluate the relations for
+	 *            each call.
+	 * @see #getRelations()
+	 */
+	public void setSafeSubsets(SafeSubsetTable safeSubsets) {
+		this.safeSubsets = safeSubsets;
+	}
+
+	/**
+	 * Returns the cache used by {@link #isSafe(long)}.
+	 * 
+	 * @return The cache, or <code>null</code> if the verdicts aren't cached.
+	 */
+	public SurvivalCache getSurvivalCache() {
+		return survivalCache;
+	}
+
+	/**
+	 * Sets the cache used by {@link #isSafe(long)} when there is no table of
+	 * safe subsets. It can be shared by the encodings of a same puzzle.
+	 * 
+	 * @param survivalCache
+	 *            The cache, or <code>null</code> to evaluate the relations for
+	 *            each call.
+	 */
+	public void setSurvivalCache(SurvivalCache survivalCache) {
+		this.survivalCache = survivalCache;
+	}
+
+	/**
+	 * Returns the number of kinds of passengers.
+	 * 
+	 * @return The number of kinds.
+	 */
+	public int getKindCount() {
+		return kindMasks.length;
+	}
+
+	/**
+	 * Returns the passengers of a kind.
+	 * 
+	 * @param kind
+	 *            The index of the kind, from <code>0</code> to
+	 *            {@link #getKindCount()} excluded.
+	 * @return The passengers of that kind.
+	 */
+	public long getKind(int kind) {
+		return kindMasks[kind];
+	}
+
+	/**
+	 * Returns the maximum weight the boat can hold.
+	 * 
+	 * @return The maximum weight the boat can hold.
+	 */
+	public int getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Returns whether the passengers leave the boat on arrival.
+	 * 
+	 * @return Whether the passengers leave the boat on arrival.
+	 */
+	public boolean isEmptyOnArrival() {
+		return emptyOnArrival;
+	}
+
+	/**
+	 * Returns the index of a passenger of a given name that hasn't been placed
+	 * yet.
+	 * 
+	 * @param name
+	 *            The name of the passenger.
+	 * @param placed
+	 *            The passengers already placed.
+	 * @return The index, or <code>-1</code> if there is none.
+	 */
+	private int indexOf(String name, long placed) {
+		for (int i = 0; i < passengers.length; i++) {
+			if ((placed & 1L << i) == 0 && passengers[i].getName().equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns every load that can be made from some passengers without
+	 * exceeding a weight. The loads of the first {@link #CACHE_SIZE} pairs of
+	 * passengers and weight asked for are kept, so that they are only
+	 * enumerated once.
+	 * 
+	 * @param candidates
+	 *            The passengers that may board, in canonical form.
+	 * @param capacity
+	 *            The maximum weight of the load.
+	 * @return The loads, as passenger masks.
+	 */
+	private long[] loadsOf(long candidates, int capacity) {
+		if (capacity < 0) {
+			return NO_LOADS;
+		}
+		Long key = emptyOnArrival ? candidates : candidates | (long) capacity
+				<< 32;
+		long[] cached = cache.get(key);
+		if (cached != null) {
+			return cached;
+		}
+		Loads loads = new Loads();
+		addLoads(candidates, 0, capacity, 0, loads);
+		long[] masks = Arrays.copyOf(loads.masks, loads.count);
+		if (cache.size() < CACHE_SIZE) {
+			cache.putIfAbsent(key, masks);
+		}
+		return masks;
+	}
+
+	/**
+	 * Adds to <code>loads</code> every load that can be made by adding
+	 * passengers of the kinds <code>kind</code> and above to
+	 * <code>load</code>. For each kind, the passengers of lowest index are
+	 * picked first.
+	 * 
+	 * @param shore
+	 *            The passengers that may board.
+	 * @param kind
+	 *            The first kind that may still be added.
+	 * @param capacity
+	 *            The remaining weight.
+	 * @param load
+	 *            The passengers already chosen.
+	 * @param loads
+	 *            The loads found so far.
+	 */
+	private void addLoads(long shore, int kind, int capacity, long load,
+			Loads loads) {
+		for (; kind < kindMasks.length; kind++) {
+			long candidates = shore & kindMasks[kind];
+			long more = load;
+			int remaining = capacity;
+			while (candidates != 0) {
+				long passenger = Long.lowestOneBit(candidates);
+				remaining -= passengers[Long.numberOfTrailingZeros(passenger)]
+						.getWeight();
+				if (remaining < 0) {
+					break;
+				}
+				candidates ^= passenger;
+				more |= passenger;
+				loads.add(more);
+				addLoads(shore, kind + 1, remaining, more, loads);
+			}
+		}
+	}
+
+	/**
+	 * Returns every passenger of a river.
+	 * 
+	 * @param river
+	 *            The river.
+	 * @return The passengers on both shores and on the boat.
+	 */
+	private static List<Passenger> passengersOf(River river) {
+		List<Passenger> all = new ArrayList<Passenger>();
+		all.addAll(river.getLeft().getPassengers());
+		all.addAll(river.getRight().getPassengers());
+		all.addAll(river.getBoat().getPassengers());
+		return all;
+	}
+
+	/**
+	 * A growable list of loads.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private static class Loads {
+		/**
+		 * The loads, the first {@link #count} being used.
+		 */
+		private long[] masks = new long[16];
+		/**
+		 * The number of loads.
+		 */
+		private int count;
+
+		/**
+		 * Adds a load.
+		 * 
+		 * @param mask
+		 *            The passengers of the load.
+		 */
+		private void add(long mask) {
+			if (count == masks.length) {
+				masks = Arrays.copyOf(masks, count * 2);
+			}
+			masks[count++] = mask;
+		}
+	}
+}
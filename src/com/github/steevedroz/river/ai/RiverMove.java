@@ -0,0 +1,279 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.steevedroz.river.River;
+import com.github.steevedroz.river.location.Boat;
+import com.github.steevedroz.river.location.Shore;
+import com.github.steevedroz.river.passenger.Passenger;
+
+/**
+ * This class represents one crossing of the river: the passengers that board
+ * the boat and the shores the boat goes from and to.<br />
+ * <br />
+ * A move can be made on a river with {@link #apply(River)} and taken back with
+ * {@link #undo(River)}, which puts every passenger back where it was, in the
+ * same order, and the boat back on its shore. A solver can therefore explore
+ * the positions of a single river instead of copying it for each position.
+ * Once the buffers of a move have grown to the size of its load, applying and
+ * undoing it don't allocate anything: the passengers are moved one by one,
+ * and those aboard are read with {@link Boat#copyPassengers(Passenger[])},
+ * which doesn't build the list of an indexed location.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class RiverMove {
+	/**
+	 * The passengers that board before the crossing.
+	 */
+	private List<Passenger> passengers;
+	/**
+	 * The shore the boat leaves.
+	 */
+	private Shore source;
+	/**
+	 * The shore the boat reaches.
+	 */
+	private Shore destination;
+	/**
+	 * Whether the move has been applied and not undone yet.
+	 */
+	private boolean applied;
+	/**
+	 * The position of each passenger of the load on its shore, before it
+	 * boarded, or <code>-1</code> if the shore is indexed.
+	 */
+	private int[] positions;
+	/**
+	 * The passengers that left the boat on arrival, in the order they were
+	 * aboard.
+	 */
+	private Passenger[] arrivals;
+	/**
+	 * The number of passengers in {@link #arrivals}.
+	 */
+	private int arrived;
+
+	/**
+	 * This constructor creates a move.
+	 * 
+	 * @param passengers
+	 *            The passengers that board before the crossing.
+	 * @param source
+	 *            The shore the boat leaves.
+	 * @param destination
+	 *            The shore the boat reaches.
+	 */
+	public RiverMove(List<Passenger> passengers, Shore source,
+			Shore destination) {
+		this.passengers = passengers;
+		this.source = source;
+		this.destination = destination;
+		this.positions = new int[passengers.size()];
+		this.arrivals = new Passenger[0];
+	}
+
+	/**
+	 * A text-only representation of the move, for instance
+	 * <code>Farmer,Goat: Left -> Right</code>.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		for (Passenger passenger : passengers) {
+			if (str.length() > 0) {
+				str.append(",");
+			}
+			str.append(passenger.getName());
+		}
+		return str + ": " + source.getName() + " -> " + destination.getName();
+	}
+
+	/**
+	 * Finds the move that brings a river from a position to the next one. The
+	 * passengers are recognized by name and taken from the first river, and
+	 * listed by name.
+	 * 
+	 * @param before
+	 *            The river before the crossing.
+	 * @param after
+	 *            The river after the crossing.
+	 * @return The move, whose shores are those of <code>before</code>.
+	 */
+	public static RiverMove between(River before, River after) {
+		boolean fromLeft = before.getBoat().getShore() == before.getLeft();
+		Shore source = fromLeft ? before.getLeft() : before.getRight();
+		Shore destination = fromLeft ? before.getRight() : before.getLeft();
+		List<Passenger> remaining = new ArrayList<Passenger>(
+				(fromLeft ? after.getLeft() : after.getRight()).getPassengers());
+		List<Passenger> sorted = new ArrayList<Passenger>(
+				source.getPassengers());
+		Collections.sort(sorted);
+		List<Passenger> passengers = new ArrayList<Passenger>();
+		for (Passenger passenger : sorted) {
+			int index = indexOf(remaining, passenger.getName());
+			if (index < 0) {
+				passengers.add(passenger);
+			} else {
+				remaining.remove(index);
+			}
+		}
+		return new RiverMove(passengers, source, destination);
+	}
+
+	/**
+	 * Makes the move on a river: the passengers board, the boat crosses and,
+	 * if the boat is emptied on arrival, everybody aboard goes ashore. Unlike
+	 * {@link River#tryCross(List)}, nothing is checked but the position of
+	 * the passengers and of the boat, the move must be valid, see
+	 * {@link River#checkMove(List)}.
+	 * 
+	 * @param river
+	 *            The river, whose shores have the names of the shores of the
+	 *            move if they are not the same.
+	 * @throws IllegalStateException
+	 *             If the move is already applied.
+	 * @throws IllegalArgumentException
+	 *             If the boat or a passenger isn't on the source shore.
+	 */
+	public void apply(River river) {
+		if (applied) {
+			throw new IllegalStateException("The move is already applied");
+		}
+		Shore from = shoreOf(river, source);
+		Boat boat = river.getBoat();
+		if (boat.getShore() != from) {
+			throw new IllegalArgumentException("The boat isn't on "
+					+ from.getName());
+		}
+		for (int i = 0; i < passengers.size(); i++) {
+			if (!from.contains(passengers.get(i))) {
+				throw new IllegalArgumentException(passengers.get(i)
+						.getName() + " isn't on " + from.getName());
+			}
+		}
+		for (int i = 0; i < passengers.size(); i++) {
+			Passenger passenger = passengers.get(i);
+			positions[i] = from.getRegistry() == null ? from.getPassengers()
+					.indexOf(passenger) : -1;
+			from.go(passenger, boat);
+		}
+		Shore to = from == river.getLeft() ? river.getRight() : river
+				.getLeft();
+		boat.setShore(to);
+		arrived = 0;
+		if (boat.isEmptyOnArrival()) {
+			if (arrivals.length < boat.getPassengerCount()) {
+				arrivals = new Passenger[boat.getPassengerCount()];
+			}
+			arrived = boat.copyPassengers(arrivals);
+			for (int i = 0; i < arrived; i++) {
+				boat.go(arrivals[i], to);
+			}
+		}
+		applied = true;
+	}
+
+	/**
+	 * Takes back the move last applied to a river, which must not have been
+	 * moved since.
+	 * 
+	 * @param river
+	 *            The river the move has been applied to.
+	 * @throws IllegalStateException
+	 *             If the move isn't applied.
+	 */
+	public void undo(River river) {
+		if (!applied) {
+			throw new IllegalStateException("The move isn't applied");
+		}
+		Shore from = shoreOf(river, source);
+		Shore to = from == river.getLeft() ? river.getRight() : river
+				.getLeft();
+		Boat boat = river.getBoat();
+		for (int i = 0; i < arrived; i++) {
+			to.go(arrivals[i], boat);
+			arrivals[i] = null;
+		}
+		for (int i = passengers.size() - 1; i >= 0; i--) {
+			Passenger passenger = passengers.get(i);
+			boat.go(passenger, from, positions[i]);
+		}
+		boat.setShore(from);
+		applied = false;
+	}
+
+	/**
+	 * Returns the passengers that board before the crossing.
+	 * 
+	 * @return The passengers.
+	 */
+	public List<Passenger> getPassengers() {
+		return passengers;
+	}
+
+	/**
+	 * Returns the shore the boat leaves.
+	 * 
+	 * @return The shore.
+	 */
+	public Shore getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the shore the boat reaches.
+	 * 
+	 * @return The shore.
+	 */
+	public Shore getDestination() {
+		return destination;
+	}
+
+	/**
+	 * Returns the shore of a river that matches a shore of the move, being
+	 * the same shore or having the same name.
+	 * 
+	 * @param river
+	 *            The river.
+	 * @param shore
+	 *            The shore of the move.
+	 * @return The shore of the river.
+	 * @throws IllegalArgumentException
+	 *             If no shore of the river matches.
+	 */
+	private static Shore shoreOf(River river, Shore shore) {
+		if (shore == river.getLeft() || shore == river.getRight()) {
+			return shore;
+		}
+		if (river.getLeft().getName().equals(shore.getName())) {
+			return river.getLeft();
+		}
+		if (river.getRight().getName().equals(shore.getName())) {
+			return river.getRight();
+		}
+		throw new IllegalArgumentException("The river has no shore named "
+				+ shore.getName());
+	}
+
+	/**
+	 * Returns the position of the first passenger with a given name.
+	 * 
+	 * @param passengers
+	 *            The passengers.
+	 * @param name
+	 *            The name.
+	 * @return The position, or <code>-1</code> if there is no such passenger.
+	 */
+	private static int indexOf(List<Passenger> passengers, String name) {
+		for (int i = 0; i < passengers.size(); i++) {
+			if (passengers.get(i).getName().equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -1,14 +1,19 @@
 package com.github.steevedroz.river.ai;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
 
+import com.github.steevedroz.river.MoveResult;
 import com.github.steevedroz.river.River;
-import com.github.steevedroz.river.exceptions.DeathException;
-import com.github.steevedroz.river.exceptions.NoBoatException;
-import com.github.steevedroz.river.exceptions.NoNavigatorException;
-import com.github.steevedroz.river.location.Shore;
+import com.github.steevedroz.river.location.Boat;
+import com.github.steevedroz.river.location.Location;
 import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.PassengerRegistry;
+import com.github.steevedroz.utils.LongHashMap;
+import com.github.steevedroz.utils.LongRingBuffer;
 
 /**
  * This is the main class for using the artificial intelligence that solves the
@@ -21,20 +26,133 @@ import com.github.steevedroz.river.passenger.Passenger;
  * passengers on the right shore and the boat as well.<br />
  * Then, create a new RiverSolver with
  * <code>RiverSolver solver = new RiverSolver(river);</code> and solve the
- * problem with <code>solver.solve(goal);</code>.
+ * problem with <code>solver.solve(goal);</code>. The returned
+ * {@link SolveResult} holds the positions and the moves of the solution, which
+ * are also printed by default, see {@link #setSink(SolveSink)}.<br />
+ * <br />
+ * Rivers that fit in a {@link RiverEncoding} are explored as packed states,
+ * with the algorithm given by {@link #setMode(SearchMode)}. The others are
+ * explored breadth-first by cloning the river for each state, their passengers
+ * being indexed by the {@link PassengerRegistry}. Only the states waiting to be
+ * visited hold a river: each reached state is otherwise remembered by its
+ * parent and its move in a {@link StateTable}, and the solution is rebuilt by
+ * replaying the moves from the original position.
  * 
  * @author Steeve Droz
  * 
  */
 public class RiverSolver {
 	/**
-	 * A list of the states that have already been visited.
+	 * The target given to {@link #addChildrenToActiveStates(RiverState, int)}
+	 * to add every child.
+	 */
+	private static final int ALL_MOVES = -1;
+	/**
+	 * The hash that marks a free slot of {@link #visited}.
+	 */
+	private static final long UNVISITED = 0L;
+	/**
+	 * The value returned for a hash that isn't in {@link #visited}.
+	 */
+	private static final long UNREACHED = -1L;
+
+	/**
+	 * The position in {@link #keys} of each state that has already been
+	 * reached, by hash. A state is marked as soon as it is added to
+	 * {@link #activeStates}, so that the same position is never queued twice.
+	 * A state whose hash is already taken by another state goes to the next
+	 * free hash, see {@link #visit(RiverState)}.
+	 */
+	private LongHashMap visited;
+	/**
+	 * The keys of the states that have already been reached, {@link #width}
+	 * values each, see {@link #fillKey(RiverState)}.
+	 */
+	private int[] keys;
+	/**
+	 * The number of keys in {@link #keys}.
+	 */
+	private int keyCount;
+	/**
+	 * The number of values of a key.
+	 */
+	private int width;
+	/**
+	 * The key of the state being visited.
+	 */
+	private int[] key;
+	/**
+	 * The passengers of the location being counted.
+	 */
+	private Passenger[] counted;
+	/**
+	 * The states that are to be visited, in the order they have been reached.
+	 */
+	private Queue<RiverState> activeStates;
+	/**
+	 * The parent and the move of each state that has been reached. A move is
+	 * the position of the load in the order they are enumerated by
+	 * {@link #addChildrenToActiveStates(RiverState, int)}.
+	 */
+	private StateTable table;
+	/**
+	 * The river in its original position.
+	 */
+	private River river;
+	/**
+	 * The kinds of the passengers of the river and of the goals.
+	 */
+	private PassengerRegistry registry;
+	/**
+	 * The encoding of the river, or <code>null</code> if it can't be packed.
+	 */
+	private RiverEncoding encoding;
+	/**
+	 * The algorithm used on packed states.
+	 */
+	private SearchMode mode;
+	/**
+	 * The search used by {@link SearchMode#RETROGRADE}, kept from one call to
+	 * {@link #solve(River)} to the next, or <code>null</code>.
+	 */
+	private RetrogradeSearch retrograde;
+	/**
+	 * The heuristic used by {@link SearchMode#A_STAR} and
+	 * {@link SearchMode#IDA_STAR}.
 	 */
-	private List<String> visited;
+	private Heuristic heuristic;
 	/**
-	 * A list of the states that are to be visited.
+	 * The number of entries of the transposition table used by
+	 * {@link SearchMode#IDA_STAR}.
 	 */
-	private List<RiverState> activeStates;
+	private int tableSize;
+	/**
+	 * The number of threads used by {@link SearchMode#PARALLEL}.
+	 */
+	private int threads;
+	/**
+	 * The number of states waiting to be expanded kept in memory by
+	 * {@link SearchMode#BREADTH_FIRST}.
+	 */
+	private int frontierLimit;
+	/**
+	 * The sink that receives each result, or <code>null</code>.
+	 */
+	private SolveSink sink;
+	/**
+	 * The positions of the passengers of the shore being expanded, sorted by
+	 * weight.
+	 */
+	private int[] order;
+	/**
+	 * The positions in {@link #order} of the passengers of the load being
+	 * enumerated.
+	 */
+	private int[] chosen;
+	/**
+	 * The passengers of the load being checked.
+	 */
+	private List<Passenger> load;
 
 	/**
 	 * This constructor sets up a RiverSolver with the river as starting point.
@@ -43,117 +161,586 @@ public class RiverSolver {
 	 *            The river in its original position.
 	 */
 	public RiverSolver(River river) {
-		this.visited = new ArrayList<String>();
-		this.activeStates = new ArrayList<RiverState>();
-		this.activeStates.add(new RiverState(river));
+		this.river = river;
+		this.registry = new PassengerRegistry();
+		this.registry.register(river);
+		if (RiverEncoding.supports(river)) {
+			this.encoding = new RiverEncoding(river);
+		}
+		this.mode = SearchMode.BREADTH_FIRST;
+		this.heuristic = new CrossingHeuristic();
+		this.tableSize = TranspositionTable.SIZE;
+		this.threads = Runtime.getRuntime().availableProcessors();
+		this.frontierLimit = LongRingBuffer.LIMIT;
+		this.sink = new ConsoleSink();
+		this.order = new int[0];
+		this.chosen = new int[0];
+		this.load = new ArrayList<Passenger>();
+		RiverState start = new RiverState(start());
+		this.table = new StateTable();
+		this.visited = new LongHashMap(UNVISITED);
+		this.width = 2 * registry.getKindCount() + 1;
+		this.keys = new int[16 * width];
+		this.key = new int[width];
+		this.counted = new Passenger[0];
+		visit(start);
+		this.activeStates = new ArrayDeque<RiverState>();
+		this.activeStates.add(start);
 	}
 
 	/**
-	 * This method concretely solves the problem and prints each state of the
-	 * process, or "No solution" if the problem has no solution.
+	 * This method concretely solves the problem and hands the result to the
+	 * sink, which prints each state of the process, or "No solution" if the
+	 * problem has no solution, unless another sink has been set.
 	 * 
 	 * @param goal
 	 *            The final state that must be reached. Be careful not to forget
 	 *            the position of the boat. It may not be possible to solve the
 	 *            problem with the boat on the other shore.
+	 * @return The positions of the river and the moves that solve the
+	 *         problem.
 	 */
-	public void solve(River goal) {
-		String goalState = new RiverState(goal).getState();
-		while (activeStates.size() > 0) {
-			RiverState current = activeStates.get(0);
-			activeStates.remove(0);
-			if (current.getState().equals(goalState)) {
-				printSolution(current);
-				return;
+	public SolveResult solve(River goal) {
+		long begin = System.nanoTime();
+		registry.register(goal);
+		List<River> states = new ArrayList<River>();
+		SearchStatistics statistics;
+		if (encoding != null) {
+			PackedSearch search = createSearch();
+			long[] path = search.search(encoding.encode(river),
+					encoding.encode(goal));
+			if (path != null) {
+				for (long state : path) {
+					states.add(encoding.decode(state));
+				}
 			}
-			if (visited.contains(current.getState())) {
-				continue;
+			statistics = new SearchStatistics(mode, search.getExpanded(),
+					System.nanoTime() - begin);
+		} else {
+			RiverState goalState = new RiverState(goal);
+			long expanded = 0;
+			while (!activeStates.isEmpty()) {
+				RiverState current = activeStates.poll();
+				if (current.getHash() == goalState.getHash()
+						&& current.getKey().equals(goalState.getKey())) {
+					states = replay(table.path(current.getIndex()));
+					break;
+				}
+				expanded++;
+				addChildrenToActiveStates(current, ALL_MOVES);
+			}
+			statistics = new SearchStatistics(null, expanded,
+					System.nanoTime() - begin);
+		}
+		SolveResult result = new SolveResult(states, statistics);
+		if (sink != null) {
+			sink.accept(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the registry of the kinds of the passengers of the river and of
+	 * the goals already solved. The relations of each kind are copied when
+	 * its first passenger is registered, and the search uses that copy: the
+	 * passengers can still be modified, but relations added afterwards are
+	 * ignored by this solver.
+	 * 
+	 * @return The registry.
+	 */
+	public PassengerRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns the tablebase built by {@link SearchMode#RETROGRADE}. It is kept
+	 * by the solver and only built again when another goal is solved, so that
+	 * the distance and the next crossing of any position can be looked up
+	 * without searching again.
+	 * 
+	 * @return The tablebase of the last goal solved, or <code>null</code> if
+	 *         none has been built.
+	 */
+	public Tablebase getTablebase() {
+		return retrograde == null ? null : retrograde.getTablebase();
+	}
+
+	/**
+	 * Returns the algorithm used on packed states.
+	 * 
+	 * @return The algorithm.
+	 */
+	public SearchMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Sets the algorithm used on packed states. It is ignored if the river
+	 * can't be packed.
+	 * 
+	 * @param mode
+	 *            The algorithm.
+	 */
+	public void setMode(SearchMode mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Returns the heuristic used by {@link SearchMode#A_STAR} and
+	 * {@link SearchMode#IDA_STAR}.
+	 * 
+	 * @return The heuristic.
+	 */
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	/**
+	 * Sets the heuristic used by {@link SearchMode#A_STAR} and
+	 * {@link SearchMode#IDA_STAR}. By default, a {@link CrossingHeuristic} is
+	 * used.
+	 * 
+	 * @param heuristic
+	 *            The heuristic.
+	 */
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	/**
+	 * Returns the number of entries of the transposition table used by
+	 * {@link SearchMode#IDA_STAR}.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int getTableSize() {
+		return tableSize;
+	}
+
+	/**
+	 * Sets the number of entries of the transposition table used by
+	 * {@link SearchMode#IDA_STAR}, which bounds the memory it uses. By
+	 * default, it is {@link TranspositionTable#SIZE}, and it can't be more
+	 * than {@link TranspositionTable#MAX_SIZE}.
+	 * 
+	 * @param tableSize
+	 *            The number of entries, at least <code>1</code>.
+	 * @throws IllegalArgumentException
+	 *             If the number of entries is less than <code>1</code>.
+	 */
+	public void setTableSize(int tableSize) {
+		if (tableSize < 1) {
+			throw new IllegalArgumentException(
+					"The table must have at least one entry: " + tableSize);
+		}
+		this.tableSize = tableSize;
+	}
+
+	/**
+	 * Returns the number of threads used by {@link SearchMode#PARALLEL}.
+	 * 
+	 * @return The number of threads.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets the number of threads used by {@link SearchMode#PARALLEL}. By
+	 * default, there is one thread per available processor.
+	 * 
+	 * @param threads
+	 *            The number of threads, at least <code>1</code>.
+	 * @throws IllegalArgumentException
+	 *             If the number of threads is less than <code>1</code>.
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"There must be at least one thread: " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the number of states waiting to be expanded kept in memory by
+	 * {@link SearchMode#BREADTH_FIRST}.
+	 * 
+	 * @return The number of states.
+	 */
+	public int getFrontierLimit() {
+		return frontierLimit;
+	}
+
+	/**
+	 * Sets the number of states waiting to be expanded kept in memory by
+	 * {@link SearchMode#BREADTH_FIRST}. Beyond it, the states are written to a
+	 * temporary file until they are expanded, see {@link LongRingBuffer}. By
+	 * default, it is {@link LongRingBuffer#LIMIT}.
+	 * 
+	 * @param frontierLimit
+	 *            The number of states.
+	 */
+	public void setFrontierLimit(int frontierLimit) {
+		this.frontierLimit = frontierLimit;
+	}
+
+	/**
+	 * Returns whether the safety of every set of passengers is stored in a
+	 * {@link SafeSubsetTable}.
+	 * 
+	 * @return Whether a table is used.
+	 */
+	public boolean isSafetyTable() {
+		return encoding != null && encoding.getSafeSubsets() != null;
+	}
+
+	/**
+	 * Sets whether the safety of every set of passengers is stored in a
+	 * {@link SafeSubsetTable}. The table is built right away, on
+	 * {@link #getThreads()} threads, if the river has at most
+	 * {@link SafeSubsetTable#MAX_TABLE_PASSENGERS} passengers, and filled
+	 * while solving otherwise. It is ignored if the river can't be packed.
+	 * 
+	 * @param safetyTable
+	 *            Whether a table is used.
+	 */
+	public void setSafetyTable(boolean safetyTable) {
+		if (encoding != null) {
+			encoding.setSafeSubsets(safetyTable ? new SafeSubsetTable(
+					encoding.getRelations(), encoding.size(), threads) : null);
+		}
+	}
+
+	/**
+	 * Returns the cache of the safety of the locations met while solving.
+	 * 
+	 * @return The cache, or <code>null</code> if there is none.
+	 */
+	public SurvivalCache getSurvivalCache() {
+		return encoding == null ? null : encoding.getSurvivalCache();
+	}
+
+	/**
+	 * Sets the cache of the safety of the locations met while solving. The
+	 * same cache can be given to the solvers of a same puzzle so that each
+	 * solve starts with the verdicts of the previous ones. It isn't used when
+	 * there is a {@link SafeSubsetTable} or if the river can't be packed.
+	 * 
+	 * @param survivalCache
+	 *            The cache, or <code>null</code> to check each location.
+	 */
+	public void setSurvivalCache(SurvivalCache survivalCache) {
+		if (encoding != null) {
+			encoding.setSurvivalCache(survivalCache);
+		}
+	}
+
+	/**
+	 * Returns the sink that receives the result of each call to
+	 * {@link #solve(River)}.
+	 * 
+	 * @return The sink, or <code>null</code> if there is none.
+	 */
+	public SolveSink getSink() {
+		return sink;
+	}
+
+	/**
+	 * Sets the sink that receives the result of each call to
+	 * {@link #solve(River)}. By default, a {@link ConsoleSink} prints it.
+	 * 
+	 * @param sink
+	 *            The sink, or <code>null</code> to only return the result.
+	 */
+	public void setSink(SolveSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Creates the search matching the current mode. The search of
+	 * {@link SearchMode#RETROGRADE} is only created once, so that it keeps
+	 * its tablebase.
+	 * 
+	 * @return A search on the states of the river.
+	 */
+	private PackedSearch createSearch() {
+		switch (mode) {
+		case BIDIRECTIONAL:
+			return new BidirectionalSearch(encoding);
+		case A_STAR:
+			return new AStarSearch(encoding, heuristic);
+		case IDA_STAR:
+			return new IterativeDeepeningSearch(encoding, heuristic, tableSize);
+		case PARALLEL:
+			return new ParallelBreadthFirstSearch(encoding, threads);
+		case RETROGRADE:
+			if (retrograde == null) {
+				retrograde = new RetrogradeSearch(encoding);
 			}
-			visited.add(current.getState());
-			addChildrenToActiveStates(current);
+			return retrograde;
+		default:
+			return new BreadthFirstSearch(encoding, frontierLimit);
 		}
-		System.out.println("No solution");
+	}
+
+	/**
+	 * Creates the original position of the river, its passengers being
+	 * indexed by the registry.
+	 * 
+	 * @return A new river.
+	 */
+	private River start() {
+		River indexed = river.cloneOf();
+		indexed.setRegistry(registry);
+		return indexed;
+	}
+
+	/**
+	 * Rebuilds the positions of the river reached by some moves, making them
+	 * again from the original position exactly as the search made them.
+	 * 
+	 * @param path
+	 *            The moves, as stored in {@link #table}.
+	 * @return Every position from the original one to the last one.
+	 */
+	private List<River> replay(int[] path) {
+		List<River> states = new ArrayList<River>();
+		RiverState current = new RiverState(start());
+		states.add(current.getRiver());
+		for (int move : path) {
+			addChildrenToActiveStates(current, move);
+			current = new RiverState(current.getRiver().cloneOf());
+			current.getRiver().tryCross(load);
+			states.add(current.getRiver());
+		}
+		return states;
 	}
 
 	/**
 	 * This method duplicates the river in its current state for each possible
-	 * move from this point. The valid duplicates are added to the list of
-	 * states to be visited.
+	 * move from this point. The valid duplicates that haven't been reached yet
+	 * are added to the list of states to be visited.<br />
+	 * <br />
+	 * The passengers of the shore are sorted by weight, then the loads are
+	 * enumerated depth-first: a load stops growing as soon as the next
+	 * passenger, and therefore every heavier one, doesn't fit in the boat.
+	 * Each load is numbered in that order, valid or not, and this number is
+	 * the move stored in {@link #table}. Since the order only depends on the
+	 * river, the same number gives the same load when the solution is
+	 * replayed.
 	 * 
 	 * @param current
 	 *            The river in its current state.
+	 * @param target
+	 *            {@link #ALL_MOVES} to add every child, or the number of the
+	 *            only load wanted, which is then left in {@link #load}
+	 *            without crossing.
 	 */
-	private void addChildrenToActiveStates(RiverState current) {
-		Shore source = current.getRiver().getBoat().getShore();
-
-		List<ArrayList<Passenger>> combinations = crossingCombinations(
-				source.getPassengers(), current.getRiver().getBoat()
-						.getMaxWeight());
-		for (ArrayList<Passenger> passengers : combinations) {
-			RiverState riverState = current.createChild();
-			try {
-				for (Passenger passenger : passengers) {
-					riverState.getRiver().board(passenger);
+	private void addChildrenToActiveStates(RiverState current, int target) {
+		Boat boat = current.getRiver().getBoat();
+		List<Passenger> shore = boat.getShore().getPassengers();
+		int capacity = boat.getMaxWeight();
+		capacity -= boat.getWeight();
+		sortByWeight(shore);
+
+		int size = 0;
+		int next = 0;
+		int move = 0;
+		while (true) {
+			if (next < shore.size()
+					&& shore.get(order[next]).getWeight() <= capacity) {
+				capacity -= shore.get(order[next]).getWeight();
+				chosen[size++] = next++;
+				if (target == ALL_MOVES) {
+					addChild(current, shore, size, move);
+				} else if (move == target) {
+					fillLoad(shore, size);
+					return;
 				}
-				riverState.getRiver().cross();
-				activeStates.add(riverState);
-			} catch (NoBoatException e) {
-				e.printStackTrace();
-			} catch (NoNavigatorException | DeathException e) {
+				move++;
+			} else if (size > 0) {
+				next = chosen[--size];
+				capacity += shore.get(order[next]).getWeight();
+				next++;
+			} else {
+				return;
 			}
 		}
 	}
 
 	/**
-	 * This method returns a list containing every combination of maximum
-	 * <code>weight</code> passengers on a same boat.
+	 * Checks a load on the current state and, if the crossing is valid, makes
+	 * it in a duplicate of the current state. The duplicate is added to the
+	 * list of states to be visited if it hasn't been reached yet. Invalid
+	 * loads therefore cost neither a copy of the river nor an exception.
 	 * 
-	 * @param passengers
-	 *            The passenger list to pick the passengers from.
-	 * @param weight
-	 *            The maximum weight of the boat.
-	 * @return A list of all the combinations of passengers that match the
-	 *         requirements.
+	 * @param current
+	 *            The river in its current state.
+	 * @param shore
+	 *            The passengers on the shore of the boat.
+	 * @param size
+	 *            The number of passengers of the load, given by their
+	 *            position in {@link #chosen}.
+	 * @param move
+	 *            The number of the load.
 	 */
-	private List<ArrayList<Passenger>> crossingCombinations(
-			List<Passenger> passengers, int weight) {
-		List<ArrayList<Passenger>> combinations = new ArrayList<ArrayList<Passenger>>();
-		if (weight <= 0) {
-			return combinations;
+	private void addChild(RiverState current, List<Passenger> shore,
+			int size, int move) {
+		fillLoad(shore, size);
+		if (current.getRiver().checkMove(load) != MoveResult.VALID) {
+			return;
+		}
+		RiverState riverState = new RiverState(current.getRiver().cloneOf());
+		riverState.getRiver().tryCross(load);
+		if (visit(riverState)) {
+			riverState.setIndex(table.add(current.getIndex(), move));
+			activeStates.add(riverState);
 		}
+	}
 
+	/**
+	 * Marks a state as reached. The state is found by its hash, and its key is
+	 * compared with the key of the state stored under the same hash, which is
+	 * the same state unless the hashes collide. On a collision, the next hash
+	 * is tried. The key of a new state is stored.
+	 * 
+	 * @param state
+	 *            The state.
+	 * @return <code>true</code> if the state hadn't been reached yet.
+	 */
+	private boolean visit(RiverState state) {
+		fillKey(state);
+		for (long hash = state.getHash();; hash++) {
+			if (hash == UNVISITED) {
+				continue;
+			}
+			long position = visited.get(hash, UNREACHED);
+			if (position == UNREACHED) {
+				visited.put(hash, keyCount);
+				if (keys.length < (keyCount + 1) * width) {
+					keys = Arrays.copyOf(keys, keys.length * 2);
+				}
+				System.arraycopy(key, 0, keys, keyCount * width, width);
+				keyCount++;
+				return true;
+			}
+			if (isKey((int) position)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Fills {@link #key} with the key of a state: the number of passengers of
+	 * each kind on the left shore, then on the boat, then whether the boat is
+	 * on the right shore. The number of passengers of each kind on the right
+	 * shore follows from them, since nobody leaves the river. Two states have
+	 * the same key if and only if they have the same
+	 * {@link RiverState#getKey()}.
+	 * 
+	 * @param state
+	 *            The state.
+	 */
+	private void fillKey(RiverState state) {
+		River river = state.getRiver();
+		Arrays.fill(key, 0);
+		count(river.getLeft(), 0);
+		count(river.getBoat(), width / 2);
+		key[width - 1] = river.getBoat().getShore() == river.getRight() ? 1
+				: 0;
+	}
+
+	/**
+	 * Adds the number of passengers of each kind of a location to
+	 * {@link #key}.
+	 * 
+	 * @param location
+	 *            The location.
+	 * @param offset
+	 *            The position in the key of the first kind.
+	 */
+	private void count(Location location, int offset) {
+		if (counted.length < location.getPassengerCount()) {
+			counted = new Passenger[location.getPassengerCount()];
+		}
+		int count = location.copyPassengers(counted);
+		for (int i = 0; i < count; i++) {
+			key[offset + registry.getKind(counted[i])]++;
+		}
+	}
+
+	/**
+	 * Returns whether a stored key is {@link #key}.
+	 * 
+	 * @param position
+	 *            The position of the stored key.
+	 * @return Whether both keys are the same.
+	 */
+	private boolean isKey(int position) {
+		int start = position * width;
+		for (int i = 0; i < width; i++) {
+			if (keys[start + i] != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fills {@link #load} with the passengers being enumerated.
+	 * 
+	 * @param shore
+	 *            The passengers on the shore of the boat.
+	 * @param size
+	 *            The number of passengers of the load, given by their
+	 *            position in {@link #chosen}.
+	 */
+	private void fillLoad(List<Passenger> shore, int size) {
+		load.clear();
+		for (int i = 0; i < size; i++) {
+			load.add(shore.get(order[chosen[i]]));
+		}
+	}
+
+	/**
+	 * Fills {@link #order} with the positions of the passengers sorted by
+	 * weight, the lightest first, then by name. Passengers of the same weight
+	 * and name keep their order. The list itself isn't modified.
+	 * 
+	 * @param passengers
+	 *            The passengers.
+	 */
+	private void sortByWeight(List<Passenger> passengers) {
+		if (order.length < passengers.size()) {
+			order = new int[passengers.size()];
+			chosen = new int[passengers.size()];
+		}
 		for (int i = 0; i < passengers.size(); i++) {
 			Passenger passenger = passengers.get(i);
-			List<Passenger> nextPassengers = passengers.subList(i + 1,
-					passengers.size());
-			List<ArrayList<Passenger>> subCombinations = crossingCombinations(
-					nextPassengers, weight - passenger.getWeight());
-			for (ArrayList<Passenger> otherPassengers : subCombinations) {
-				otherPassengers.add(passenger);
+			int j = i;
+			for (; j > 0 && isHeavier(passengers.get(order[j - 1]), passenger); j--) {
+				order[j] = order[j - 1];
 			}
-			ArrayList<Passenger> solo = new ArrayList<Passenger>();
-			solo.add(passenger);
-			subCombinations.add(solo);
-			combinations.addAll(subCombinations);
+			order[j] = i;
 		}
-		return combinations;
 	}
 
 	/**
-	 * This method is called when a path has successfully been found to the
-	 * goal. It prints each step of the solution.
+	 * Returns whether a passenger comes after another one when sorted by
+	 * weight, then by kind, see
+	 * {@link PassengerRegistry#compare(Passenger, Passenger)}.
 	 * 
-	 * @param current
-	 *            The state that matches the goal.
+	 * @param passenger1
+	 *            The first passenger.
+	 * @param passenger2
+	 *            The other passenger.
+	 * @return <code>true</code> if the first passenger comes after.
 	 */
-	private void printSolution(RiverState current) {
-		List<RiverState> states = new ArrayList<RiverState>();
-		while (current != null) {
-			states.add(0, current);
-			current = current.getParent();
-		}
-		for (RiverState state : states) {
-			System.out.println(state.getState());
+	private boolean isHeavier(Passenger passenger1, Passenger passenger2) {
+		if (passenger1.getWeight() != passenger2.getWeight()) {
+			return passenger1.getWeight() > passenger2.getWeight();
 		}
+		return registry.compare(passenger1, passenger2) > 0;
 	}
 }
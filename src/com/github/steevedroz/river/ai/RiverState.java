@@ -1,17 +1,41 @@
 package com.github.steevedroz.river.ai;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import com.github.steevedroz.river.River;
+import com.github.steevedroz.river.location.Location;
+import com.github.steevedroz.river.passenger.Passenger;
 import com.github.steevedroz.utils.StringUtils;
 
 /**
  * This class represents the river in a given position. It holds the river
- * itself and a parent state, from which the current state has been reached.
+ * itself and a parent state, from which the current state has been reached.<br />
+ * <br />
+ * A state is identified by its key, see {@link #getKey()}, and hashed in
+ * constant time by {@link #getHash()}.
  * 
  * @author Steeve Droz
  */
 public class RiverState {
+	/**
+	 * The multiplier of the sum of the codes of the left shore.
+	 */
+	private static final long LEFT = 0x9E3779B97F4A7C15L;
+	/**
+	 * The multiplier of the sum of the codes of the right shore.
+	 */
+	private static final long RIGHT = 0xC2B2AE3D27D4EB4FL;
+	/**
+	 * The multiplier of the sum of the codes of the boat.
+	 */
+	private static final long BOAT = 0x165667B19E3779F9L;
+	/**
+	 * The code added when the boat is on the right shore.
+	 */
+	private static final long BOAT_ON_RIGHT = 0x27D4EB2F165667C5L;
+
 	/**
 	 * The river in a given position.
 	 */
@@ -21,6 +45,14 @@ public class RiverState {
 	 * the river to this current state.
 	 */
 	private RiverState parent;
+	/**
+	 * The key of this state, computed once by {@link #getKey()}.
+	 */
+	private String key;
+	/**
+	 * The number of this state in the {@link StateTable} of the search.
+	 */
+	private int index;
 
 	/**
 	 * This constructor creates a state with a river and the previous state.
@@ -84,16 +116,48 @@ public class RiverState {
 	 * </dd>
 	 * </dl>
 	 * 
+	 * The river isn't modified.
+	 * 
 	 * @return The state of the river, represented by passenger names, "," and
 	 *         "|".
 	 */
 	public String getState() {
-		Collections.sort(river.getLeft().getPassengers());
-		Collections.sort(river.getRight().getPassengers());
-		Collections.sort(river.getBoat().getPassengers());
-		return StringUtils.join(river.getLeft().getPassengers(), ",") + "|"
-				+ StringUtils.join(river.getRight().getPassengers(), ",") + "|"
-				+ StringUtils.join(river.getBoat().getPassengers(), ",") + "|" + river.getBoat().getShore().getName();
+		return StringUtils.join(sorted(river.getLeft()), ",") + "|"
+				+ StringUtils.join(sorted(river.getRight()), ",") + "|"
+				+ StringUtils.join(sorted(river.getBoat()), ",")
+				+ "|" + river.getBoat().getShore().getName();
+	}
+
+	/**
+	 * Returns the Zobrist hash of the current position of the river. It
+	 * combines the sums of the codes of each location, see
+	 * {@link com.github.steevedroz.river.location.Location#getZobrist()}, and
+	 * the shore of the boat, and is therefore computed in constant time when
+	 * the locations are indexed. Two states with the same key have the same
+	 * hash, but two states with the same hash may have different keys.
+	 * 
+	 * @return The hash of the state.
+	 */
+	public long getHash() {
+		long hash = river.getLeft().getZobrist() * LEFT
+				+ river.getRight().getZobrist() * RIGHT
+				+ river.getBoat().getZobrist() * BOAT;
+		return river.getBoat().getShore() == river.getRight() ? hash
+				+ BOAT_ON_RIGHT : hash;
+	}
+
+	/**
+	 * Returns the key identifying this state, as given by {@link #getState()}.
+	 * The key is only computed on the first call, the river must therefore not
+	 * be moved afterwards.
+	 * 
+	 * @return The key of the state.
+	 */
+	public String getKey() {
+		if (key == null) {
+			key = getState();
+		}
+		return key;
 	}
 
 	/**
@@ -114,6 +178,16 @@ public class RiverState {
 		return parent;
 	}
 
+	/**
+	 * Returns the number of this state in the {@link StateTable} of the
+	 * search.
+	 * 
+	 * @return The number of the state.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
 	/**
 	 * Sets the river.
 	 * 
@@ -122,6 +196,7 @@ public class RiverState {
 	 */
 	public void setRiver(River river) {
 		this.river = river;
+		this.key = null;
 	}
 
 	/**
@@ -133,4 +208,29 @@ public class RiverState {
 	public void setParent(RiverState parent) {
 		this.parent = parent;
 	}
+
+	/**
+	 * Sets the number of this state in the {@link StateTable} of the search.
+	 * 
+	 * @param index
+	 *            The number of the state.
+	 */
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * Returns the passengers of a location sorted by name, comparing their
+	 * kinds if the location is indexed by a registry.
+	 * 
+	 * @param location
+	 *            The location.
+	 * @return A new sorted list.
+	 */
+	private static List<Passenger> sorted(Location location) {
+		List<Passenger> sorted = new ArrayList<Passenger>(
+				location.getPassengers());
+		Collections.sort(sorted, location.getRegistry());
+		return sorted;
+	}
 }
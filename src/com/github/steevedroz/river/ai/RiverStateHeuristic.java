@@ -0,0 +1,44 @@
+package com.github.steevedroz.river.ai;
+
+/**
+ * This abstract class is a {@link Heuristic} that works on rivers instead of
+ * packed states. Each estimated state is decoded into a {@link RiverState}
+ * first, which is much slower than working on the packed state, but allows
+ * to reuse any logic written for rivers.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public abstract class RiverStateHeuristic implements Heuristic {
+	/**
+	 * The encoding of the river being solved.
+	 */
+	private RiverEncoding encoding;
+	/**
+	 * The goal.
+	 */
+	private RiverState goal;
+
+	@Override
+	public void prepare(RiverEncoding encoding, long goal) {
+		this.encoding = encoding;
+		this.goal = new RiverState(encoding.decode(goal));
+	}
+
+	@Override
+	public int estimate(long state) {
+		return estimate(new RiverState(encoding.decode(state)), goal);
+	}
+
+	/**
+	 * Returns a lower bound of the number of crossings needed to go from a
+	 * state to the goal.
+	 * 
+	 * @param state
+	 *            The state.
+	 * @param goal
+	 *            The goal.
+	 * @return The estimated number of crossings.
+	 */
+	public abstract int estimate(RiverState state, RiverState goal);
+}
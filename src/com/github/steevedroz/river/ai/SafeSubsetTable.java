@@ -0,0 +1,187 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.relation.CompiledRelations;
+import com.github.steevedroz.river.passenger.relation.SafetyCheck;
+
+/**
+ * This class remembers whether each set of passengers survives together, so
+ * that checking a location costs a single lookup.<br />
+ * <br />
+ * Up to {@link #MAX_TABLE_PASSENGERS} passengers, every set is checked when
+ * the table is created, on several threads, and the answers are stored in a
+ * bitset indexed by the mask of the set. With more passengers, the sets are
+ * checked the first time they are asked for and the answers are kept in a
+ * {@link ConcurrentStateTable}, up to {@link #MAX_LAZY_SIZE} of them. Both
+ * forms can be used by several threads at the same time.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class SafeSubsetTable implements SafetyCheck {
+	/**
+	 * The maximum number of passengers for which every set is checked in
+	 * advance.
+	 */
+	public static final int MAX_TABLE_PASSENGERS = 24;
+	/**
+	 * The maximum number of answers kept when the sets are checked on demand.
+	 */
+	public static final int MAX_LAZY_SIZE = 1 << 20;
+	/**
+	 * The number of words of the bitset below which a task isn't split.
+	 */
+	private static final int THRESHOLD = 1 << 10;
+	/**
+	 * The value of a safe set in {@link #lazy}.
+	 */
+	private static final long SAFE = 1;
+	/**
+	 * The value of an unsafe set in {@link #lazy}.
+	 */
+	private static final long UNSAFE = 0;
+
+	/**
+	 * The relations of the passengers.
+	 */
+	private CompiledRelations relations;
+	/**
+	 * The bit of each set is set if it is safe, or <code>null</code> if the
+	 * sets are checked on demand.
+	 */
+	private long[] table;
+	/**
+	 * The sets already checked, or <code>null</code> if every set has been
+	 * checked in advance.
+	 */
+	private ConcurrentStateTable lazy;
+
+	/**
+	 * This constructor creates the table of some passengers.
+	 * 
+	 * @param relations
+	 *            The compiled relations of the passengers.
+	 * @param size
+	 *            The number of passengers.
+	 * @param threads
+	 *            The number of threads that fill the bitset.
+	 */
+	public SafeSubsetTable(CompiledRelations relations, int size, int threads) {
+		this.relations = relations;
+		if (size > MAX_TABLE_PASSENGERS) {
+			lazy = new ConcurrentStateTable(ConcurrentStateTable.CAPACITY);
+			return;
+		}
+		table = new long[Math.max(1, (1 << size) >>> 6)];
+		long subsets = 1L << size;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new Fill(0, table.length, subsets));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Returns whether the passengers of a mask survive together.
+	 * 
+	 * @param mask
+	 *            The passengers.
+	 * @return <code>true</code> if nobody gets killed.
+	 */
+	public boolean isSafe(long mask) {
+		if (table != null) {
+			return (table[(int) (mask >>> 6)] & 1L << mask) != 0;
+		}
+		long known = lazy.get(mask);
+		if (known != ConcurrentStateTable.NO_VALUE) {
+			return known == SAFE;
+		}
+		boolean safe = relations.isSafe(mask);
+		if (lazy.size() < MAX_LAZY_SIZE) {
+			lazy.putIfLower(mask, safe ? SAFE : UNSAFE);
+		}
+		return safe;
+	}
+
+	@Override
+	public boolean isSafe(List<Passenger> passengers) {
+		long mask = relations.maskOf(passengers);
+		return mask != CompiledRelations.UNKNOWN ? isSafe(mask) : relations
+				.isSafe(passengers);
+	}
+
+	/**
+	 * Returns whether every set has been checked in advance.
+	 * 
+	 * @return <code>true</code> if the sets are stored in a bitset,
+	 *         <code>false</code> if they are checked on demand.
+	 */
+	public boolean isPrecomputed() {
+		return table != null;
+	}
+
+	/**
+	 * This task fills a range of words of the bitset, splitting itself until
+	 * the range is small enough.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private class Fill extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The first word of the range.
+		 */
+		private int from;
+		/**
+		 * The word after the range.
+		 */
+		private int to;
+		/**
+		 * The number of sets.
+		 */
+		private long subsets;
+
+		/**
+		 * This constructor creates a task for a range of words.
+		 * 
+		 * @param from
+		 *            The first word of the range.
+		 * @param to
+		 *            The word after the range.
+		 * @param subsets
+		 *            The number of sets.
+		 */
+		private Fill(int from, int to, long subsets) {
+			this.from = from;
+			this.to = to;
+			this.subsets = subsets;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Fill(from, middle, subsets), new Fill(middle, to,
+						subsets));
+				return;
+			}
+			for (int word = from; word < to; word++) {
+				long bits = 0;
+				for (int bit = 0; bit < 64; bit++) {
+					long mask = (long) word << 6 | bit;
+					if (mask < subsets && relations.isSafe(mask)) {
+						bits |= 1L << bit;
+					}
+				}
+				table[word] = bits;
+			}
+		}
+	}
+}
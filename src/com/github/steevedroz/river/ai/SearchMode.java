@@ -0,0 +1,43 @@
+package com.github.steevedroz.river.ai;
+
+/**
+ * This enum lists the algorithms a {@link RiverSolver} can use to explore the
+ * packed states of a river. Every mode finds a shortest solution.
+ * 
+ * @author Steeve Droz
+ * @see RiverSolver#setMode(SearchMode)
+ * 
+ */
+public enum SearchMode {
+	/**
+	 * A forward breadth-first search, see {@link BreadthFirstSearch}.
+	 */
+	BREADTH_FIRST,
+	/**
+	 * A breadth-first search from both ends, see {@link BidirectionalSearch}.
+	 */
+	BIDIRECTIONAL,
+	/**
+	 * A search guided by the heuristic of the solver, see
+	 * {@link AStarSearch} and {@link RiverSolver#setHeuristic(Heuristic)}.
+	 */
+	A_STAR,
+	/**
+	 * A depth-first search with an increasing bound, guided by the heuristic
+	 * of the solver, that uses little memory. See
+	 * {@link IterativeDeepeningSearch}.
+	 */
+	IDA_STAR,
+	/**
+	 * A breadth-first search that expands each layer on several threads, see
+	 * {@link ParallelBreadthFirstSearch} and {@link RiverSolver#setThreads(int)}
+	 * . It gives the same solution as {@link #BREADTH_FIRST}.
+	 */
+	PARALLEL,
+	/**
+	 * A breadth-first search from the goal that finds the distance of every
+	 * state before following the shortest path, see {@link RetrogradeSearch}
+	 * and {@link Tablebase}.
+	 */
+	RETROGRADE;
+}
@@ -0,0 +1,77 @@
+package com.github.steevedroz.river.ai;
+
+/**
+ * This class holds figures about how a {@link RiverSolver} found its result.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class SearchStatistics {
+	/**
+	 * The algorithm used, or <code>null</code> if the river couldn't be
+	 * packed.
+	 */
+	private SearchMode mode;
+	/**
+	 * The number of states whose crossings have been tried.
+	 */
+	private long expanded;
+	/**
+	 * The duration of the search, in nanoseconds.
+	 */
+	private long elapsedTime;
+
+	/**
+	 * This constructor creates the statistics of a search.
+	 * 
+	 * @param mode
+	 *            The algorithm used, or <code>null</code> if the river
+	 *            couldn't be packed.
+	 * @param expanded
+	 *            The number of states whose crossings have been tried.
+	 * @param elapsedTime
+	 *            The duration of the search, in nanoseconds.
+	 */
+	public SearchStatistics(SearchMode mode, long expanded, long elapsedTime) {
+		this.mode = mode;
+		this.expanded = expanded;
+		this.elapsedTime = elapsedTime;
+	}
+
+	/**
+	 * A text-only representation of the statistics.
+	 */
+	@Override
+	public String toString() {
+		return (mode == null ? "CLONING" : mode) + ": " + expanded
+				+ " states expanded in " + elapsedTime / 1000000 + " ms";
+	}
+
+	/**
+	 * Returns the algorithm used.
+	 * 
+	 * @return The algorithm, or <code>null</code> if the river couldn't be
+	 *         packed and has been explored by cloning it.
+	 */
+	public SearchMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Returns the number of states whose crossings have been tried.
+	 * 
+	 * @return The number of states expanded.
+	 */
+	public long getExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * Returns the duration of the search.
+	 * 
+	 * @return The duration, in nanoseconds.
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+}
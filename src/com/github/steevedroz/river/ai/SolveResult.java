@@ -0,0 +1,84 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.steevedroz.river.River;
+
+/**
+ * This class is the outcome of {@link RiverSolver#solve(River)}: the
+ * positions of the river from the original one to the goal, the moves
+ * between them and statistics about the search.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class SolveResult {
+	/**
+	 * Every position of the river, from the original one to the goal.
+	 */
+	private List<River> states;
+	/**
+	 * The moves between the positions.
+	 */
+	private List<RiverMove> moves;
+	/**
+	 * Figures about the search.
+	 */
+	private SearchStatistics statistics;
+
+	/**
+	 * This constructor creates a result from the positions of the river.
+	 * 
+	 * @param states
+	 *            Every position of the river from the original one to the
+	 *            goal, or an empty list if there is no solution.
+	 * @param statistics
+	 *            Figures about the search.
+	 */
+	public SolveResult(List<River> states, SearchStatistics statistics) {
+		this.states = states;
+		this.statistics = statistics;
+		this.moves = new ArrayList<RiverMove>();
+		for (int i = 1; i < states.size(); i++) {
+			moves.add(RiverMove.between(states.get(i - 1), states.get(i)));
+		}
+	}
+
+	/**
+	 * Returns whether a solution has been found.
+	 * 
+	 * @return Whether the goal can be reached.
+	 */
+	public boolean isSolved() {
+		return !states.isEmpty();
+	}
+
+	/**
+	 * Returns every position of the river.
+	 * 
+	 * @return The positions from the original one to the goal, or an empty
+	 *         list if there is no solution.
+	 */
+	public List<River> getStates() {
+		return states;
+	}
+
+	/**
+	 * Returns the moves that solve the problem.
+	 * 
+	 * @return The moves, in order.
+	 */
+	public List<RiverMove> getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Returns figures about the search.
+	 * 
+	 * @return The statistics.
+	 */
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+}
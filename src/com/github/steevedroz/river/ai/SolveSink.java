@@ -0,0 +1,19 @@
+package com.github.steevedroz.river.ai;
+
+/**
+ * This interface receives the result of each {@link RiverSolver#solve} call,
+ * for instance to display it.
+ * 
+ * @author Steeve Droz
+ * @see RiverSolver#setSink(SolveSink)
+ * 
+ */
+public interface SolveSink {
+	/**
+	 * This method is called once the search is over.
+	 * 
+	 * @param result
+	 *            The result of the search.
+	 */
+	public void accept(SolveResult result);
+}
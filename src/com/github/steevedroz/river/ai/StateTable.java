@@ -0,0 +1,117 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.Arrays;
+
+/**
+ * This class remembers how each state reached by a search has been reached,
+ * so that the path to any of them can be rebuilt once the search is over.<br />
+ * <br />
+ * The states are numbered in the order they are added, the first one being
+ * the original state. For each state, only the number of its parent and the
+ * number of the move that leads from the parent to it are kept, in two arrays
+ * of <code>int</code>: the positions of the river are not kept at all, they
+ * are found again by replaying the moves from the original position. What a
+ * move number means is up to the search.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class StateTable {
+	/**
+	 * The parent of the original state, which has none.
+	 */
+	public static final int ROOT = -1;
+
+	/**
+	 * The parent of each state, the first {@link #size} being used.
+	 */
+	private int[] parents;
+	/**
+	 * The move that reached each state from its parent.
+	 */
+	private int[] moves;
+	/**
+	 * The number of states.
+	 */
+	private int size;
+
+	/**
+	 * This constructor creates a table holding only the original state, whose
+	 * number is <code>0</code>.
+	 */
+	public StateTable() {
+		parents = new int[16];
+		moves = new int[16];
+		add(ROOT, 0);
+	}
+
+	/**
+	 * Adds a state.
+	 * 
+	 * @param parent
+	 *            The number of the state from which it has been reached.
+	 * @param move
+	 *            The number of the move that reached it.
+	 * @return The number of the new state.
+	 */
+	public int add(int parent, int move) {
+		if (size == parents.length) {
+			parents = Arrays.copyOf(parents, size * 2);
+			moves = Arrays.copyOf(moves, size * 2);
+		}
+		parents[size] = parent;
+		moves[size] = move;
+		return size++;
+	}
+
+	/**
+	 * Returns the parent of a state.
+	 * 
+	 * @param state
+	 *            The number of the state.
+	 * @return The number of the parent, or {@link #ROOT} for the original
+	 *         state.
+	 */
+	public int getParent(int state) {
+		return parents[state];
+	}
+
+	/**
+	 * Returns the move that reached a state from its parent.
+	 * 
+	 * @param state
+	 *            The number of the state, other than the original one.
+	 * @return The number of the move.
+	 */
+	public int getMove(int state) {
+		return moves[state];
+	}
+
+	/**
+	 * Returns the moves that lead from the original state to a state.
+	 * 
+	 * @param state
+	 *            The number of the state.
+	 * @return The number of each move, in the order they are made.
+	 */
+	public int[] path(int state) {
+		int length = 0;
+		for (int current = state; parents[current] != ROOT; current = parents[current]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int current = state; parents[current] != ROOT; current = parents[current]) {
+			path[--length] = moves[current];
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the number of states.
+	 * 
+	 * @return The number of states.
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,260 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.steevedroz.utils.LongHashMap;
+
+/**
+ * This class remembers whether the passengers of a location survive together,
+ * keyed by the canonical contents of the location: the number of passengers
+ * of each kind, as given by {@link RiverEncoding#canonicalLocation(long)}.
+ * As the key doesn't depend on the encoding, a cache can be shared by the
+ * solvers of a same puzzle, but not by different puzzles.<br />
+ * <br />
+ * The cache holds a fixed number of verdicts. The entries are grouped in sets
+ * of {@link #WAYS} and a key can only be stored in one set. When a set is
+ * full, its entries are evicted in CLOCK order: a hand goes round the set,
+ * giving a second chance to the entries that have been used since it last
+ * passed. Each set is locked while it is read or written, so several threads
+ * can use the cache at the same time.<br />
+ * <br />
+ * <b>Example:</b>
+ * 
+ * <pre>
+ * SurvivalCache cache = new SurvivalCache();
+ * solver.setSurvivalCache(cache);
+ * solver.solve(goal);
+ * other.setSurvivalCache(cache);
+ * other.solve(goal);
+ * System.out.println(cache.getHits() + &quot; hits, &quot; + cache.getMisses()
+ * 		+ &quot; misses&quot;);
+ * </pre>
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class SurvivalCache {
+	/**
+	 * The default number of entries.
+	 */
+	public static final int CAPACITY = 1 << 16;
+	/**
+	 * The number of entries of a set.
+	 */
+	public static final int WAYS = 8;
+	/**
+	 * The verdict of a location whose passengers survive.
+	 */
+	public static final int SAFE = 1;
+	/**
+	 * The verdict of a location where a passenger gets killed.
+	 */
+	public static final int UNSAFE = 0;
+	/**
+	 * The verdict of a location that isn't in the cache.
+	 */
+	public static final int UNKNOWN = -1;
+	/**
+	 * The key of a free entry.
+	 */
+	private static final long EMPTY = RiverEncoding.INVALID;
+	/**
+	 * The number of locks shared by the sets.
+	 */
+	private static final int LOCKS = 64;
+
+	/**
+	 * The key of each entry.
+	 */
+	private long[] keys;
+	/**
+	 * The verdict of each entry.
+	 */
+	private boolean[] verdicts;
+	/**
+	 * Whether each entry has been used since the hand last passed.
+	 */
+	private boolean[] referenced;
+	/**
+	 * The position of the hand of each set.
+	 */
+	private int[] hands;
+	/**
+	 * The locks guarding the sets, each lock guarding every set whose index
+	 * ends with the same bits.
+	 */
+	private Object[] locks;
+	/**
+	 * The number of lookups that found their key.
+	 */
+	private AtomicLong hits;
+	/**
+	 * The number of lookups that didn't find their key.
+	 */
+	private AtomicLong misses;
+	/**
+	 * The number of entries replaced by another.
+	 */
+	private AtomicLong evictions;
+
+	/**
+	 * This constructor creates a cache of {@link #CAPACITY} entries.
+	 */
+	public SurvivalCache() {
+		this(CAPACITY);
+	}
+
+	/**
+	 * This constructor creates an empty cache.
+	 * 
+	 * @param capacity
+	 *            The number of entries, rounded up to a power of two and to at
+	 *            least {@link #WAYS}.
+	 */
+	public SurvivalCache(int capacity) {
+		int size = Integer.highestOneBit(Math.max(WAYS, capacity) - 1) << 1;
+		keys = new long[size];
+		verdicts = new boolean[size];
+		referenced = new boolean[size];
+		hands = new int[size / WAYS];
+		locks = new Object[Math.min(LOCKS, hands.length)];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		evictions = new AtomicLong();
+		clear();
+	}
+
+	/**
+	 * Returns the verdict of a location.
+	 * 
+	 * @param key
+	 *            The canonical contents of the location.
+	 * @return {@link #SAFE}, {@link #UNSAFE} or {@link #UNKNOWN} if the
+	 *         location isn't in the cache.
+	 */
+	public int get(long key) {
+		int set = set(key);
+		synchronized (lock(set)) {
+			for (int entry = set * WAYS; entry < (set + 1) * WAYS; entry++) {
+				if (keys[entry] == key) {
+					referenced[entry] = true;
+					hits.incrementAndGet();
+					return verdicts[entry] ? SAFE : UNSAFE;
+				}
+			}
+		}
+		misses.incrementAndGet();
+		return UNKNOWN;
+	}
+
+	/**
+	 * Stores the verdict of a location, evicting another one if its set is
+	 * full.
+	 * 
+	 * @param key
+	 *            The canonical contents of the location.
+	 * @param safe
+	 *            Whether the passengers of the location survive.
+	 */
+	public void put(long key, boolean safe) {
+		int set = set(key);
+		synchronized (lock(set)) {
+			for (int entry = set * WAYS; entry < (set + 1) * WAYS; entry++) {
+				if (keys[entry] == key || keys[entry] == EMPTY) {
+					keys[entry] = key;
+					verdicts[entry] = safe;
+					return;
+				}
+			}
+			int entry = set * WAYS + hands[set];
+			while (referenced[entry]) {
+				referenced[entry] = false;
+				hands[set] = (hands[set] + 1) % WAYS;
+				entry = set * WAYS + hands[set];
+			}
+			hands[set] = (hands[set] + 1) % WAYS;
+			keys[entry] = key;
+			verdicts[entry] = safe;
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes every entry and resets the counters.
+	 */
+	public void clear() {
+		for (int set = 0; set < hands.length; set++) {
+			synchronized (lock(set)) {
+				Arrays.fill(keys, set * WAYS, (set + 1) * WAYS, EMPTY);
+				Arrays.fill(referenced, set * WAYS, (set + 1) * WAYS, false);
+				hands[set] = 0;
+			}
+		}
+		hits.set(0);
+		misses.set(0);
+		evictions.set(0);
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return The number of verdicts the cache can hold.
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the number of lookups that found their key.
+	 * 
+	 * @return The number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that didn't find their key.
+	 * 
+	 * @return The number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of entries replaced by another. A high number
+	 * compared to the misses means that the cache is too small.
+	 * 
+	 * @return The number of evictions.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Returns the set where a key is stored.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return The set.
+	 */
+	private int set(long key) {
+		return LongHashMap.hash(key) & (hands.length - 1);
+	}
+
+	/**
+	 * Returns the lock that guards a set.
+	 * 
+	 * @param set
+	 *            The set.
+	 * @return The lock.
+	 */
+	private Object lock(int set) {
+		return locks[set & (locks.length - 1)];
+	}
+}
@@ -0,0 +1,337 @@
+package com.github.steevedroz.river.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.steevedroz.river.River;
+import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.utils.LongList;
+
+/**
+ * This class holds the number of crossings left to reach a goal from every
+ * position of a river. It is built once by a breadth-first search that starts
+ * from the goal and undoes crossings, after which the distance of any
+ * position, whether it can still be solved and the best next crossing are
+ * found without searching.<br />
+ * <br />
+ * The distances are stored in an array of one <code>char</code> per canonical
+ * state. The position of a state in the array is computed from the number of
+ * passengers of each kind on the right shore and on the boat, and from the
+ * shore of the boat.<br />
+ * <br />
+ * <b>Example:</b>
+ * 
+ * <pre>
+ * Tablebase tablebase = new Tablebase(goal);
+ * if (tablebase.isSolvable(river)) {
+ * 	for (Passenger passenger : tablebase.getHint(river)) {
+ * 		river.board(passenger);
+ * 	}
+ * 	river.cross();
+ * }
+ * </pre>
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class Tablebase {
+	/**
+	 * The maximum number of canonical states of a river.
+	 */
+	public static final int MAX_SIZE = 1 << 27;
+	/**
+	 * The distance of a state that can't reach the goal.
+	 */
+	public static final int UNREACHED = -1;
+	/**
+	 * The value stored for a state that can't reach the goal.
+	 */
+	private static final char UNREACHED_VALUE = Character.MAX_VALUE;
+
+	/**
+	 * The encoding of the river.
+	 */
+	private RiverEncoding encoding;
+	/**
+	 * The canonical goal.
+	 */
+	private long goal;
+	/**
+	 * The number of crossings left from each state.
+	 */
+	private char[] distances;
+	/**
+	 * The number of states reached.
+	 */
+	private int solvable;
+
+	/**
+	 * This constructor builds the tablebase of a goal.
+	 * 
+	 * @param goal
+	 *            The river in its goal position.
+	 * @throws IllegalArgumentException
+	 *             If the river can't be packed or has more than
+	 *             {@link #MAX_SIZE} canonical states.
+	 */
+	public Tablebase(River goal) {
+		this(createEncoding(goal), goal);
+	}
+
+	/**
+	 * This constructor builds the tablebase of a goal given as a packed state.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 * @param goal
+	 *            The canonical goal.
+	 * @throws IllegalArgumentException
+	 *             If the goal is {@link RiverEncoding#INVALID} or the river
+	 *             has more than {@link #MAX_SIZE} canonical states.
+	 */
+	public Tablebase(RiverEncoding encoding, long goal) {
+		if (goal == RiverEncoding.INVALID) {
+			throw new IllegalArgumentException("The goal can't be packed");
+		}
+		if (encoding.getStateCount() > MAX_SIZE) {
+			throw new IllegalArgumentException("The river has more than "
+					+ MAX_SIZE + " states");
+		}
+		this.encoding = encoding;
+		this.goal = goal;
+		build();
+	}
+
+	/**
+	 * This constructor builds the tablebase of a goal given as a river, with
+	 * the encoding of the river.
+	 * 
+	 * @param encoding
+	 *            The encoding of the river.
+	 * @param goal
+	 *            The river in its goal position.
+	 */
+	private Tablebase(RiverEncoding encoding, River goal) {
+		this(encoding, encoding.encode(goal));
+	}
+
+	/**
+	 * Returns the number of crossings left to reach the goal.
+	 * 
+	 * @param state
+	 *            The canonical state.
+	 * @return The number of crossings, or {@link #UNREACHED} if the goal
+	 *         can't be reached.
+	 */
+	public int getDistance(long state) {
+		if (state == RiverEncoding.INVALID) {
+			return UNREACHED;
+		}
+		char distance = distances[index(state)];
+		return distance == UNREACHED_VALUE ? UNREACHED : distance;
+	}
+
+	/**
+	 * Returns the number of crossings left to reach the goal.
+	 * 
+	 * @param river
+	 *            The river in its current position, with the same passengers
+	 *            as the goal.
+	 * @return The number of crossings, or {@link #UNREACHED} if the goal
+	 *         can't be reached.
+	 */
+	public int getDistance(River river) {
+		return getDistance(encoding.encode(river));
+	}
+
+	/**
+	 * Returns whether the goal can still be reached.
+	 * 
+	 * @param river
+	 *            The river in its current position, with the same passengers
+	 *            as the goal.
+	 * @return Whether the goal can be reached.
+	 */
+	public boolean isSolvable(River river) {
+		return getDistance(river) != UNREACHED;
+	}
+
+	/**
+	 * Returns the state after the best crossing, that is the first crossing
+	 * in the order of {@link RiverEncoding#loads(long)} that gets one step
+	 * closer to the goal.
+	 * 
+	 * @param state
+	 *            The canonical state.
+	 * @return The next canonical state, or {@link RiverEncoding#INVALID} if
+	 *         the state is the goal or can't reach it.
+	 */
+	public long next(long state) {
+		long load = nextLoad(state);
+		return load == RiverEncoding.INVALID ? RiverEncoding.INVALID
+				: encoding.cross(state, load);
+	}
+
+	/**
+	 * Returns the passengers to board before the best crossing. They are taken
+	 * from the shore of the boat of the given river.
+	 * 
+	 * @param river
+	 *            The river in its current position, with the same passengers
+	 *            as the goal.
+	 * @return The passengers to board, an empty list if the river is in its
+	 *         goal position, or <code>null</code> if the goal can't be
+	 *         reached.
+	 */
+	public List<Passenger> getHint(River river) {
+		long state = encoding.encode(river);
+		if (state == goal) {
+			return new ArrayList<Passenger>();
+		}
+		long load = nextLoad(state);
+		if (load == RiverEncoding.INVALID) {
+			return null;
+		}
+		List<Passenger> hint = new ArrayList<Passenger>();
+		for (int kind = 0; kind < encoding.getKindCount(); kind++) {
+			long passengers = load & encoding.getKind(kind);
+			int count = Long.bitCount(passengers);
+			if (count == 0) {
+				continue;
+			}
+			String name = encoding.getPassenger(
+					Long.numberOfTrailingZeros(passengers)).getName();
+			for (Passenger passenger : river.getBoat().getShore()
+					.getPassengers()) {
+				if (count > 0 && passenger.getName().equals(name)) {
+					hint.add(passenger);
+					count--;
+				}
+			}
+		}
+		return hint;
+	}
+
+	/**
+	 * Returns the number of states that can reach the goal.
+	 * 
+	 * @return The number of states.
+	 */
+	public int getSolvableCount() {
+		return solvable;
+	}
+
+	/**
+	 * Returns the encoding of the river.
+	 * 
+	 * @return The encoding.
+	 */
+	public RiverEncoding getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Returns the canonical goal.
+	 * 
+	 * @return The goal.
+	 */
+	public long getGoal() {
+		return goal;
+	}
+
+	/**
+	 * Fills the distances with a breadth-first search that starts from the
+	 * goal and undoes crossings.
+	 */
+	private void build() {
+		distances = new char[(int) encoding.getStateCount()];
+		Arrays.fill(distances, UNREACHED_VALUE);
+		distances[index(goal)] = 0;
+		LongList queue = new LongList();
+		queue.add(goal);
+		for (int head = 0; head < queue.size(); head++) {
+			long current = queue.get(head);
+			int distance = distances[index(current)] + 1;
+			if (distance == UNREACHED_VALUE) {
+				throw new IllegalStateException("The goal is more than "
+						+ (UNREACHED_VALUE - 1) + " crossings away");
+			}
+			for (long load : encoding.arrivals(current)) {
+				long previous = encoding.uncross(current, load);
+				if (previous != RiverEncoding.INVALID
+						&& distances[index(previous)] == UNREACHED_VALUE) {
+					distances[index(previous)] = (char) distance;
+					queue.add(previous);
+				}
+			}
+		}
+		solvable = queue.size();
+	}
+
+	/**
+	 * Returns the load of the best crossing.
+	 * 
+	 * @param state
+	 *            The canonical state.
+	 * @return The load, or {@link RiverEncoding#INVALID} if the state is the
+	 *         goal or can't reach it.
+	 */
+	private long nextLoad(long state) {
+		int distance = getDistance(state);
+		if (distance <= 0) {
+			return RiverEncoding.INVALID;
+		}
+		for (long load : encoding.loads(state)) {
+			if (getDistance(encoding.cross(state, load)) == distance - 1) {
+				return load;
+			}
+		}
+		return RiverEncoding.INVALID;
+	}
+
+	/**
+	 * Returns the position of a state in the distances. Each kind is a digit
+	 * whose value is the number of passengers on the right shore or, if the
+	 * boat isn't emptied on arrival, the rank of the pair made of the number
+	 * of passengers on the boat and on the right shore.
+	 * 
+	 * @param state
+	 *            The canonical state.
+	 * @return The position.
+	 */
+	private int index(long state) {
+		long right = encoding.right(state);
+		long aboard = encoding.aboard(state);
+		int index = 0;
+		for (int kind = 0; kind < encoding.getKindCount(); kind++) {
+			long passengers = encoding.getKind(kind);
+			int size = Long.bitCount(passengers);
+			int onRight = Long.bitCount(right & passengers);
+			if (encoding.isEmptyOnArrival()) {
+				index = index * (size + 1) + onRight;
+			} else {
+				int onBoat = Long.bitCount(aboard & passengers);
+				index = index * ((size + 1) * (size + 2) / 2) + onBoat
+						* (size + 1) - onBoat * (onBoat - 1) / 2 + onRight;
+			}
+		}
+		return index * 2 + (encoding.isBoatOnRight(state) ? 1 : 0);
+	}
+
+	/**
+	 * Creates the encoding of a river.
+	 * 
+	 * @param river
+	 *            The river.
+	 * @return The encoding.
+	 * @throws IllegalArgumentException
+	 *             If the river can't be packed.
+	 */
+	private static RiverEncoding createEncoding(River river) {
+		if (!RiverEncoding.supports(river)) {
+			throw new IllegalArgumentException("The river can't be packed");
+		}
+		return new RiverEncoding(river);
+	}
+}
@@ -0,0 +1,103 @@
+package com.github.steevedroz.river.ai;
+
+import com.github.steevedroz.utils.LongHashMap;
+
+/**
+ * This class remembers the lowest number of crossings at which some packed
+ * states have been reached during an iteration of an
+ * {@link IterativeDeepeningSearch}. Its size is fixed: each state can only
+ * be stored in one of two slots, and when both are taken, the entry reached
+ * with the most crossings is evicted.<br />
+ * <br />
+ * Entries of previous iterations are ignored and overwritten.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class TranspositionTable {
+	/**
+	 * The default number of entries.
+	 */
+	public static final int SIZE = 1 << 16;
+	/**
+	 * The largest number of entries.
+	 */
+	public static final int MAX_SIZE = 1 << 30;
+
+	/**
+	 * The state of each slot.
+	 */
+	private long[] states;
+	/**
+	 * The number of crossings at which the state of each slot has been
+	 * reached.
+	 */
+	private int[] costs;
+	/**
+	 * The iteration in which each slot has been written.
+	 */
+	private int[] iterations;
+	/**
+	 * The current iteration, starting at 1 so that empty slots are stale.
+	 */
+	private int iteration;
+
+	/**
+	 * This constructor creates a table with a given number of entries.
+	 * 
+	 * @param size
+	 *            The number of entries, rounded up to a power of two. The
+	 *            table has at least the two slots of a state, and at most
+	 *            {@link #MAX_SIZE} entries.
+	 */
+	public TranspositionTable(int size) {
+		int capacity = size > MAX_SIZE / 2 ? MAX_SIZE : size <= 2 ? 2
+				: Integer.highestOneBit(size - 1) << 1;
+		states = new long[capacity];
+		costs = new int[capacity];
+		iterations = new int[capacity];
+		iteration = 1;
+	}
+
+	/**
+	 * Starts a new iteration, which makes every entry stale.
+	 */
+	public void nextIteration() {
+		iteration++;
+	}
+
+	/**
+	 * Records that a state has been reached, unless it has already been
+	 * reached in this iteration with as few crossings.
+	 * 
+	 * @param state
+	 *            The packed state.
+	 * @param cost
+	 *            The number of crossings from the original state.
+	 * @return <code>false</code> if the state has already been reached with
+	 *         as few crossings, in which case it doesn't need to be explored
+	 *         again.
+	 */
+	public boolean visit(long state, int cost) {
+		int first = LongHashMap.hash(state) & (states.length - 2);
+		int slot = first;
+		for (int i = first; i < first + 2; i++) {
+			if (iterations[i] == iteration && states[i] == state) {
+				if (costs[i] <= cost) {
+					return false;
+				}
+				costs[i] = cost;
+				return true;
+			}
+			if (iterations[i] != iteration) {
+				slot = i;
+			} else if (iterations[slot] == iteration && costs[i] > costs[slot]) {
+				slot = i;
+			}
+		}
+		states[slot] = state;
+		costs[slot] = cost;
+		iterations[slot] = iteration;
+		return true;
+	}
+}
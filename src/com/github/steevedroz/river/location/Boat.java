@@ -1,7 +1,5 @@
 package com.github.steevedroz.river.location;
 
-import java.util.ArrayList;
-
 import com.github.steevedroz.river.exceptions.NoNavigatorException;
 import com.github.steevedroz.river.passenger.Passenger;
 
@@ -94,20 +92,20 @@ public class Boat extends Location {
 	}
 
 	/**
-	 * Returns a deep copy of the boat.
+	 * Returns a copy of the boat. Like the copy of a shore, it holds the same
+	 * passengers, which are not copied. The copy is on the same shore as this
+	 * boat, see {@link com.github.steevedroz.river.River#cloneOf()} to copy
+	 * the shores as well.
 	 * 
-	 * @return A deep copy.
+	 * @return A copy.
 	 */
 	@Override
 	public Boat cloneOf() {
 		Boat boat = new Boat(name);
-		boat.passengers = new ArrayList<Passenger>();
-		for (Passenger passenger : passengers) {
-			boat.passengers.add((Passenger) passenger.cloneOf());
-		}
+		copyTo(boat);
 		boat.maxWeight = maxWeight;
 		boat.emptyOnArrival = emptyOnArrival;
-		boat.shore = shore.cloneOf();
+		boat.shore = shore;
 		return boat;
 	}
 
@@ -120,11 +118,7 @@ public class Boat extends Location {
 	 */
 	@Override
 	public void add(Passenger passenger) {
-		int weight = 0;
-		for (Passenger present : passengers) {
-			weight += present.getWeight();
-		}
-		if (weight + passenger.getWeight() <= maxWeight) {
+		if (getWeight() + passenger.getWeight() <= maxWeight) {
 			super.add(passenger);
 		}
 	}
@@ -141,7 +135,7 @@ public class Boat extends Location {
 	 */
 	public void cross(Location destination) throws NoNavigatorException {
 		boolean canNavigate = false;
-		for (Passenger passenger : passengers) {
+		for (Passenger passenger : getPassengers()) {
 			if (passenger.isNavigator()) {
 				canNavigate = true;
 				break;
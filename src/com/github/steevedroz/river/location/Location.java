@@ -1,26 +1,65 @@
 package com.github.steevedroz.river.location;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
 import com.github.steevedroz.river.exceptions.DeathException;
 import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.PassengerRegistry;
+import com.github.steevedroz.river.passenger.relation.CompiledRelations;
+import com.github.steevedroz.river.passenger.relation.PresenceEvaluator;
+import com.github.steevedroz.river.passenger.relation.RelationElement;
+import com.github.steevedroz.river.passenger.relation.SafetyCheck;
 
 /**
- * This abstract class represents a place where passengers can be found.
+ * This abstract class represents a place where passengers can be found.<br />
+ * <br />
+ * By default, the passengers are kept in a list. Once a registry has been set
+ * with {@link #setRegistry(PassengerRegistry)}, the location is indexed: the
+ * passengers are kept in a bitset, by their index in the registry, along with
+ * their total weight and the sum of their Zobrist codes, so that adding,
+ * finding and moving a passenger take constant time.
+ * {@link #getPassengers()} then returns a list built from the bitset, in the
+ * order of the indexes, that can't be modified.
  * 
  * @author Steeve Droz
  * 
  */
 public abstract class Location {
 	/**
-	 * The list of passengers that are on this location.
+	 * The list of passengers that are on this location. When the location is
+	 * indexed, it is only a copy of {@link #members}, or <code>null</code> if
+	 * it must be built again.
 	 */
 	protected List<Passenger> passengers;
 	/**
 	 * The name of the location.
 	 */
 	protected String name;
+	/**
+	 * The compiled relations used to check survival, or <code>null</code>.
+	 */
+	protected SafetyCheck safetyCheck;
+	/**
+	 * The registry that indexes the passengers, or <code>null</code> if the
+	 * location isn't indexed.
+	 */
+	protected PassengerRegistry registry;
+	/**
+	 * The indexes of the passengers, when the location is indexed.
+	 */
+	protected BitSet members;
+	/**
+	 * The total weight of the passengers, when the location is indexed.
+	 */
+	protected int weight;
+	/**
+	 * The sum of the Zobrist codes of the passengers, when the location is
+	 * indexed.
+	 */
+	protected long zobrist;
 
 	/**
 	 * This constructor creates a new location.
@@ -49,7 +88,7 @@ public abstract class Location {
 	public String toString() {
 		StringBuilder str = new StringBuilder();
 		str.append(name).append(":");
-		for (Passenger passenger : passengers) {
+		for (Passenger passenger : getPassengers()) {
 			str.append(" ").append(passenger.getName());
 		}
 
@@ -63,7 +102,7 @@ public abstract class Location {
 	 *            The passenger to be added.
 	 */
 	public void add(Passenger passenger) {
-		passengers.add(passenger);
+		insert(passenger);
 	}
 
 	/**
@@ -73,7 +112,13 @@ public abstract class Location {
 	 *            The passengers to be added.
 	 */
 	public void addAll(List<Passenger> passengers) {
-		this.passengers.addAll(passengers);
+		if (registry == null) {
+			this.passengers.addAll(passengers);
+			return;
+		}
+		for (Passenger passenger : passengers) {
+			insert(passenger);
+		}
 	}
 
 	/**
@@ -84,7 +129,7 @@ public abstract class Location {
 	 */
 	public void add(Passenger... passengers) {
 		for (Passenger passenger : passengers) {
-			this.passengers.add(passenger);
+			insert(passenger);
 		}
 	}
 
@@ -95,8 +140,23 @@ public abstract class Location {
 	 *            The location where to place the passengers.
 	 */
 	public void empty(Location destination) {
-		destination.addAll(passengers);
-		passengers = new ArrayList<Passenger>();
+		if (registry == null) {
+			destination.addAll(passengers);
+			passengers = new ArrayList<Passenger>();
+			return;
+		}
+		if (destination.registry == registry) {
+			destination.members.or(members);
+			destination.weight += weight;
+			destination.zobrist += zobrist;
+			destination.passengers = null;
+		} else {
+			destination.addAll(getPassengers());
+		}
+		members.clear();
+		weight = 0;
+		zobrist = 0;
+		passengers = null;
 	}
 
 	/**
@@ -108,10 +168,37 @@ public abstract class Location {
 	 *            The location where to place the passenger.
 	 */
 	public void go(Passenger passenger, Location destination) {
-		if (passengers.contains(passenger)) {
-			destination.add(passenger);
-			passengers.remove(passenger);
+		if (!contains(passenger)) {
+			return;
 		}
+		destination.add(passenger);
+		leave(passenger);
+	}
+
+	/**
+	 * Moves one passenger from this location to a given position of another
+	 * location, for instance to put it back where it was. The position is
+	 * ignored if the destination is indexed, otherwise the passenger is
+	 * inserted without any other check.
+	 * 
+	 * @param passenger
+	 *            The passenger to move.
+	 * @param destination
+	 *            The location where to place the passenger.
+	 * @param position
+	 *            The position of the passenger in the list of the
+	 *            destination.
+	 */
+	public void go(Passenger passenger, Location destination, int position) {
+		if (destination.registry != null) {
+			go(passenger, destination);
+			return;
+		}
+		if (!contains(passenger)) {
+			return;
+		}
+		destination.passengers.add(position, passenger);
+		leave(passenger);
 	}
 
 	/**
@@ -122,23 +209,132 @@ public abstract class Location {
 	 *             raised.
 	 */
 	public void survival() throws DeathException {
-		for (Passenger passenger : passengers) {
-			List<Passenger> killer = passenger.getPresence(passengers);
-			if (killer != null) {
-				throw new DeathException(passenger, killer);
+		List<Passenger> passengers = getPassengers();
+		if (safetyCheck != null && safetyCheck.isSafe(passengers)) {
+			return;
+		}
+		boolean started = PresenceEvaluator.begin(passengers, registry);
+		try {
+			for (Passenger passenger : passengers) {
+				List<Passenger> killer = getPresence(passenger, passengers,
+						registry);
+				if (killer != null) {
+					throw new DeathException(passenger, killer);
+				}
+			}
+		} finally {
+			if (started) {
+				PresenceEvaluator.end();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the passengers survive together on this location, like
+	 * {@link #survival()} but without throwing an exception.
+	 * 
+	 * @return <code>true</code> if nobody gets killed.
+	 */
+	public boolean isSafe() {
+		return safetyCheck != null ? safetyCheck.isSafe(getPassengers())
+				: isSafe(getPassengers(), registry);
+	}
+
+	/**
+	 * Returns whether some passengers would survive together on a location.
+	 * 
+	 * @param passengers
+	 *            The passengers.
+	 * @return <code>true</code> if nobody gets killed.
+	 */
+	public static boolean isSafe(List<Passenger> passengers) {
+		return isSafe(passengers, null);
+	}
+
+	/**
+	 * Returns whether some passengers would survive together on a location,
+	 * their presence being found by the kinds of a registry, see
+	 * {@link PassengerRegistry#getPresence(RelationElement, List)}.
+	 * 
+	 * @param passengers
+	 *            The passengers.
+	 * @param registry
+	 *            The registry of the passengers, or <code>null</code> to
+	 *            compare their names.
+	 * @return <code>true</code> if nobody gets killed.
+	 */
+	public static boolean isSafe(List<Passenger> passengers,
+			PassengerRegistry registry) {
+		boolean started = PresenceEvaluator.begin(passengers, registry);
+		try {
+			for (Passenger passenger : passengers) {
+				if (getPresence(passenger, passengers, registry) != null) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			if (started) {
+				PresenceEvaluator.end();
 			}
 		}
 	}
 
 	/**
-	 * Returns the list of the passengers.
+	 * Returns the list of the passengers. When the location is indexed, the
+	 * list is built from the indexes of the passengers and can't be modified:
+	 * the passengers are moved with {@link #add(Passenger)} and
+	 * {@link #go(Passenger, Location)}.
 	 * 
 	 * @return The list of the passengers.
 	 */
 	public List<Passenger> getPassengers() {
+		if (passengers == null) {
+			List<Passenger> present = new ArrayList<Passenger>(
+					members.cardinality());
+			for (int index = members.nextSetBit(0); index >= 0; index = members
+					.nextSetBit(index + 1)) {
+				present.add(registry.getPassenger(index));
+			}
+			passengers = Collections.unmodifiableList(present);
+		}
 		return passengers;
 	}
 
+	/**
+	 * Returns the number of passengers.
+	 * 
+	 * @return The number of passengers.
+	 */
+	public int getPassengerCount() {
+		return registry == null ? passengers.size() : members.cardinality();
+	}
+
+	/**
+	 * Copies the passengers into an array, in the order of
+	 * {@link #getPassengers()}, without building a list when the location is
+	 * indexed.
+	 * 
+	 * @param array
+	 *            The array, at least as long as the number of passengers, see
+	 *            {@link #getPassengerCount()}.
+	 * @return The number of passengers copied.
+	 */
+	public int copyPassengers(Passenger[] array) {
+		if (registry == null) {
+			for (int i = 0; i < passengers.size(); i++) {
+				array[i] = passengers.get(i);
+			}
+			return passengers.size();
+		}
+		int count = 0;
+		for (int index = members.nextSetBit(0); index >= 0; index = members
+				.nextSetBit(index + 1)) {
+			array[count++] = registry.getPassenger(index);
+		}
+		return count;
+	}
+
 	/**
 	 * Returns if the passenger is at that location.
 	 * 
@@ -147,7 +343,67 @@ public abstract class Location {
 	 * @return Whether the passenger is here or not.
 	 */
 	public boolean contains(Passenger passenger) {
-		return passengers.contains(passenger);
+		if (registry == null) {
+			return passengers.contains(passenger);
+		}
+		int index = registry.getIndex(passenger);
+		return index != PassengerRegistry.UNREGISTERED && members.get(index);
+	}
+
+	/**
+	 * Returns the total weight of the passengers.
+	 * 
+	 * @return The weight of the passengers.
+	 */
+	public int getWeight() {
+		if (registry != null) {
+			return weight;
+		}
+		int weight = 0;
+		for (Passenger passenger : passengers) {
+			weight += passenger.getWeight();
+		}
+		return weight;
+	}
+
+	/**
+	 * Returns the sum of the Zobrist codes of the passengers, see
+	 * {@link Passenger#getZobrist()}. Since the codes are added, the sum
+	 * doesn't depend on the order of the passengers, and two locations with
+	 * the same number of passengers of each kind have the same sum. It is
+	 * kept up to date when the location is indexed.
+	 * 
+	 * @return The sum of the codes.
+	 */
+	public long getZobrist() {
+		if (registry != null) {
+			return zobrist;
+		}
+		long zobrist = 0;
+		for (Passenger passenger : passengers) {
+			zobrist += passenger.getZobrist();
+		}
+		return zobrist;
+	}
+
+	/**
+	 * Returns the registry that indexes the passengers.
+	 * 
+	 * @return The registry, or <code>null</code> if the location isn't
+	 *         indexed.
+	 */
+	public PassengerRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns the check used to know whether the passengers survive.
+	 * 
+	 * @return The check, or <code>null</code> if the relations of the
+	 *         passengers are evaluated directly.
+	 */
+	public SafetyCheck getSafetyCheck() {
+		return safetyCheck;
 	}
 
 	/**
@@ -168,4 +424,118 @@ public abstract class Location {
 	public void setName(String name) {
 		this.name = name;
 	}
+
+	/**
+	 * Sets the check used by {@link #survival()} and {@link #isSafe()}, for
+	 * instance the {@link CompiledRelations} of the passengers.
+	 * 
+	 * @param safetyCheck
+	 *            The check, or <code>null</code> to evaluate the relations of
+	 *            the passengers directly.
+	 */
+	public void setSafetyCheck(SafetyCheck safetyCheck) {
+		this.safetyCheck = safetyCheck;
+	}
+
+	/**
+	 * Sets the registry that indexes the passengers. The passengers already
+	 * there are registered and kept.
+	 * 
+	 * @param registry
+	 *            The registry, or <code>null</code> to keep the passengers in
+	 *            a list.
+	 */
+	public void setRegistry(PassengerRegistry registry) {
+		List<Passenger> present = new ArrayList<Passenger>(getPassengers());
+		this.registry = registry;
+		if (registry == null) {
+			members = null;
+			weight = 0;
+			zobrist = 0;
+			passengers = present;
+			return;
+		}
+		members = new BitSet();
+		weight = 0;
+		zobrist = 0;
+		passengers = null;
+		for (Passenger passenger : present) {
+			insert(passenger);
+		}
+	}
+
+	/**
+	 * Copies the passengers of this location into a copy of it.
+	 * 
+	 * @param location
+	 *            The copy.
+	 */
+	protected void copyTo(Location location) {
+		location.safetyCheck = safetyCheck;
+		location.registry = registry;
+		if (registry == null) {
+			location.passengers = new ArrayList<Passenger>();
+			location.passengers.addAll(passengers);
+			return;
+		}
+		location.members = (BitSet) members.clone();
+		location.weight = weight;
+		location.zobrist = zobrist;
+		location.passengers = null;
+	}
+
+	/**
+	 * Removes a passenger that is on this location.
+	 * 
+	 * @param passenger
+	 *            The passenger.
+	 */
+	private void leave(Passenger passenger) {
+		if (registry == null) {
+			passengers.remove(passenger);
+			return;
+		}
+		members.clear(registry.getIndex(passenger));
+		weight -= passenger.getWeight();
+		zobrist -= passenger.getZobrist();
+		passengers = null;
+	}
+
+	/**
+	 * Returns the passengers that kill a passenger, found by the registry if
+	 * there is one.
+	 * 
+	 * @param passenger
+	 *            The passenger.
+	 * @param passengers
+	 *            The passengers it is with.
+	 * @param registry
+	 *            The registry of the passengers, or <code>null</code>.
+	 * @return The killers, or <code>null</code> if there aren't any.
+	 */
+	private static List<Passenger> getPresence(Passenger passenger,
+			List<Passenger> passengers, PassengerRegistry registry) {
+		return registry != null ? registry.getPresence(passenger, passengers)
+				: passenger.getPresence(passengers);
+	}
+
+	/**
+	 * Adds a passenger, without any other check.
+	 * 
+	 * @param passenger
+	 *            The passenger.
+	 */
+	private void insert(Passenger passenger) {
+		if (registry == null) {
+			passengers.add(passenger);
+			return;
+		}
+		int index = registry.register(passenger);
+		if (!members.get(index)) {
+			members.set(index);
+			weight += passenger.getWeight();
+			zobrist += passenger.getZobrist();
+			passengers = null;
+		}
+	}
 }
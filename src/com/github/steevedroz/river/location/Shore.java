@@ -1,9 +1,5 @@
 package com.github.steevedroz.river.location;
 
-import java.util.ArrayList;
-
-import com.github.steevedroz.river.passenger.Passenger;
-
 /**
  * This class represents one of the two shores of the river.
  * 
@@ -28,8 +24,7 @@ public class Shore extends Location {
 	 */
 	public Shore cloneOf() {
 		Shore shore = new Shore(name);
-		shore.passengers = new ArrayList<Passenger>();
-		shore.passengers.addAll(passengers);
+		copyTo(shore);
 		return shore;
 	}
 }
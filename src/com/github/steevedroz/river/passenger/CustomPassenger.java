@@ -199,6 +199,15 @@ public class CustomPassenger extends Passenger {
 		this.navigator = navigator;
 	}
 
+	/**
+	 * Returns the relations of this passenger.
+	 * 
+	 * @return The relations, i.e. killers and protectors of this passenger.
+	 */
+	public List<Relation> getRelations() {
+		return relations;
+	}
+
 	/**
 	 * This method scans the list of passengers that are on the same location as
 	 * this passenger and checks if the configuration allows another passenger
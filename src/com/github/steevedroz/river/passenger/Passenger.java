@@ -21,6 +21,11 @@ public abstract class Passenger implements RelationElement,
 	 * The weight of the passenger.
 	 */
 	protected int weight;
+	/**
+	 * The Zobrist code of the name of this passenger, or <code>0</code> if it
+	 * hasn't been computed yet.
+	 */
+	private long zobrist;
 
 	/**
 	 * This constructor is called by subclasses to set the name and weight of
@@ -92,6 +97,30 @@ public abstract class Passenger implements RelationElement,
 		return weight;
 	}
 
+	/**
+	 * Returns the Zobrist code of this passenger: a 64-bit number that looks
+	 * random but only depends on the name, so that the passengers of a kind
+	 * have the same code. Every character of the name is mixed in, so that two
+	 * names only share a code by chance. A location adds up the codes of its
+	 * passengers to hash them, see
+	 * {@link com.github.steevedroz.river.location.Location#getZobrist()}.
+	 * 
+	 * @return The code, never <code>0</code>.
+	 */
+	public long getZobrist() {
+		if (zobrist == 0) {
+			long code = name.length();
+			for (int i = 0; i < name.length(); i++) {
+				code = (code + name.charAt(i)) * 0x9E3779B97F4A7C15L;
+			}
+			code = (code ^ (code >>> 30)) * 0xBF58476D1CE4E5B9L;
+			code = (code ^ (code >>> 27)) * 0x94D049BB133111EBL;
+			code ^= code >>> 31;
+			zobrist = code == 0 ? 1 : code;
+		}
+		return zobrist;
+	}
+
 	/**
 	 * Sets a new name for the passenger.
 	 * 
@@ -100,6 +129,7 @@ public abstract class Passenger implements RelationElement,
 	 */
 	public void setName(String name) {
 		this.name = name;
+		this.zobrist = 0;
 	}
 
 	/**
@@ -0,0 +1,343 @@
+package com.github.steevedroz.river.passenger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.steevedroz.river.River;
+import com.github.steevedroz.river.passenger.relation.Relation;
+import com.github.steevedroz.river.passenger.relation.RelationElement;
+
+/**
+ * This class gives each kind of passengers of a puzzle a number, so that
+ * passengers can be compared without comparing their names.<br />
+ * <br />
+ * Passengers with the same name are of the same kind (see
+ * {@link Passenger#getName()}). The kinds are numbered from <code>0</code> in
+ * the order they are registered, and ranked by name so that sorting
+ * passengers by kind, see {@link #compare(Passenger, Passenger)}, gives the
+ * same order as sorting them by name. The presence of a kind among some
+ * passengers is found by comparing kinds too, see
+ * {@link #getPresence(RelationElement, List)}.<br />
+ * <br />
+ * Each passenger registered also gets a number of its own, its index, so
+ * that the passengers of a location can be stored in a bitset, see
+ * {@link com.github.steevedroz.river.location.Location#setRegistry(PassengerRegistry)}.
+ * The passengers are recognized by identity.<br />
+ * <br />
+ * The relations of the first {@link CustomPassenger} registered for a kind
+ * are copied as the relations of the kind, which can't be modified. They
+ * are shared by every passenger of the kind when their presence is found by
+ * the registry.<br />
+ * <br />
+ * The registry only keeps its numbers and copies to itself: the passengers
+ * are never modified, and a passenger can be registered in several
+ * registries.<br />
+ * <br />
+ * <b>Example:</b>
+ * 
+ * <pre>
+ * PassengerRegistry registry = new PassengerRegistry();
+ * registry.register(river);
+ * registry.register(goal);
+ * </pre>
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class PassengerRegistry implements Comparator<Passenger> {
+	/**
+	 * The kind of the passengers that haven't been registered.
+	 */
+	public static final int UNREGISTERED = -1;
+
+	/**
+	 * The kind of each name.
+	 */
+	private Map<String, Integer> kinds;
+	/**
+	 * The name of each kind.
+	 */
+	private List<String> names;
+	/**
+	 * The relations of each kind, or <code>null</code> for the kinds that
+	 * aren't custom passengers.
+	 */
+	private List<List<Relation>> relations;
+	/**
+	 * The position of each kind when the kinds are sorted by name.
+	 */
+	private int[] ranks;
+	/**
+	 * The passengers, by index.
+	 */
+	private List<Passenger> passengers;
+	/**
+	 * The index of each passenger.
+	 */
+	private Map<Passenger, Integer> indexes;
+	/**
+	 * The kind of each passenger, by index.
+	 */
+	private int[] passengerKinds;
+	/**
+	 * Whether the passengers of each class keep the default behavior of
+	 * {@link Passenger#getPresence(List)}, which matches them by name.
+	 */
+	private Map<Class<?>, Boolean> matchedByName;
+
+	/**
+	 * This constructor creates an empty registry.
+	 */
+	public PassengerRegistry() {
+		kinds = new HashMap<String, Integer>();
+		names = new ArrayList<String>();
+		relations = new ArrayList<List<Relation>>();
+		ranks = new int[0];
+		passengers = new ArrayList<Passenger>();
+		indexes = new IdentityHashMap<Passenger, Integer>();
+		passengerKinds = new int[16];
+		matchedByName = new HashMap<Class<?>, Boolean>();
+	}
+
+	/**
+	 * Registers every passenger of a river.
+	 * 
+	 * @param river
+	 *            The river.
+	 */
+	public void register(River river) {
+		for (Passenger passenger : river.getLeft().getPassengers()) {
+			register(passenger);
+		}
+		for (Passenger passenger : river.getRight().getPassengers()) {
+			register(passenger);
+		}
+		for (Passenger passenger : river.getBoat().getPassengers()) {
+			register(passenger);
+		}
+	}
+
+	/**
+	 * Registers a passenger, giving it an index and numbering its kind if it
+	 * is the first of its kind. A passenger already registered keeps its
+	 * index.
+	 * 
+	 * @param passenger
+	 *            The passenger.
+	 * @return The index of the passenger.
+	 */
+	public int register(Passenger passenger) {
+		Integer index = indexes.get(passenger);
+		if (index != null) {
+			return index;
+		}
+		Integer kind = kinds.get(passenger.getName());
+		if (kind == null) {
+			kind = names.size();
+			kinds.put(passenger.getName(), kind);
+			names.add(passenger.getName());
+			relations.add(null);
+			rank();
+		}
+		if (passenger instanceof CustomPassenger
+				&& relations.get(kind) == null) {
+			relations.set(kind, Collections
+					.unmodifiableList(new ArrayList<Relation>(
+							((CustomPassenger) passenger).getRelations())));
+		}
+		index = passengers.size();
+		if (index == passengerKinds.length) {
+			passengerKinds = Arrays.copyOf(passengerKinds, index * 2);
+		}
+		passengerKinds[index] = kind;
+		indexes.put(passenger, index);
+		passengers.add(passenger);
+		return index;
+	}
+
+	/**
+	 * Returns the index of a passenger.
+	 * 
+	 * @param passenger
+	 *            The passenger.
+	 * @return The index, or {@link #UNREGISTERED} if the passenger hasn't
+	 *         been registered.
+	 */
+	public int getIndex(Passenger passenger) {
+		Integer index = indexes.get(passenger);
+		return index == null ? UNREGISTERED : index;
+	}
+
+	/**
+	 * Returns the kind of a passenger, found by identity if it has been
+	 * registered, otherwise by name.
+	 * 
+	 * @param passenger
+	 *            The passenger.
+	 * @return The kind, or {@link #UNREGISTERED} if no passenger with that name
+	 *         has been registered.
+	 */
+	public int getKind(Passenger passenger) {
+		Integer index = indexes.get(passenger);
+		return index != null ? passengerKinds[index] : getKind(passenger
+				.getName());
+	}
+
+	/**
+	 * Returns the kind of a name.
+	 * 
+	 * @param name
+	 *            The name of the passengers.
+	 * @return The kind, or {@link #UNREGISTERED} if no passenger with that name
+	 *         has been registered.
+	 */
+	public int getKind(String name) {
+		Integer kind = kinds.get(name);
+		return kind == null ? UNREGISTERED : kind;
+	}
+
+	/**
+	 * Returns the relations of a kind, as they were when its first custom
+	 * passenger was registered.
+	 * 
+	 * @param kind
+	 *            The kind.
+	 * @return The relations, that can't be modified, or <code>null</code> if
+	 *         the passengers of the kind aren't custom passengers.
+	 */
+	public List<Relation> getRelations(int kind) {
+		return relations.get(kind);
+	}
+
+	/**
+	 * Returns the number of kinds.
+	 * 
+	 * @return The number of kinds, the kinds being numbered from
+	 *         <code>0</code>.
+	 */
+	public int getKindCount() {
+		return names.size();
+	}
+
+	/**
+	 * Returns a registered passenger.
+	 * 
+	 * @param index
+	 *            The index of the passenger.
+	 * @return The passenger.
+	 */
+	public Passenger getPassenger(int index) {
+		return passengers.get(index);
+	}
+
+	/**
+	 * Compares two passengers by the rank of their kind, which gives the same
+	 * order as comparing their names. Passengers whose name hasn't been
+	 * registered are compared by name.
+	 * 
+	 * @param passenger1
+	 *            The first passenger.
+	 * @param passenger2
+	 *            The other passenger.
+	 * @return A negative number if the first passenger comes first, a
+	 *         positive one if it comes after, <code>0</code> if both are of
+	 *         the same kind.
+	 */
+	@Override
+	public int compare(Passenger passenger1, Passenger passenger2) {
+		int kind1 = getKind(passenger1);
+		int kind2 = getKind(passenger2);
+		if (kind1 == UNREGISTERED || kind2 == UNREGISTERED) {
+			return passenger1.compareTo(passenger2);
+		}
+		return ranks[kind1] - ranks[kind2];
+	}
+
+	/**
+	 * Returns the passengers an element finds among some passengers, the same
+	 * way as {@link RelationElement#getPresence(List)}, but with the kinds of
+	 * the registry:
+	 * <ul>
+	 * <li>a passenger that keeps the default behavior matches the passengers
+	 * of its kind;</li>
+	 * <li>a {@link CustomPassenger} returns the killers of each relation of
+	 * its kind, see {@link #getRelations(int)};</li>
+	 * <li>any other element, or a passenger whose name hasn't been
+	 * registered, is asked for its own presence.</li>
+	 * </ul>
+	 * 
+	 * @param element
+	 *            The element.
+	 * @param passengers
+	 *            The passengers.
+	 * @return The passengers found, or <code>null</code> if there aren't
+	 *         any.
+	 */
+	public List<Passenger> getPresence(RelationElement element,
+			List<Passenger> passengers) {
+		int kind = element instanceof Passenger ? getKind((Passenger) element)
+				: UNREGISTERED;
+		if (kind == UNREGISTERED) {
+			return element.getPresence(passengers);
+		}
+		List<Passenger> passengerResult = new ArrayList<Passenger>();
+		if (element.getClass() == CustomPassenger.class
+				&& relations.get(kind) != null) {
+			for (Relation relation : relations.get(kind)) {
+				List<Passenger> killers = relation.getPresence(passengers);
+				if (killers != null) {
+					passengerResult.addAll(killers);
+				}
+			}
+		} else if (isMatchedByName(element.getClass())) {
+			for (Passenger passenger : passengers) {
+				if (getKind(passenger) == kind) {
+					passengerResult.add(passenger);
+				}
+			}
+		} else {
+			return element.getPresence(passengers);
+		}
+		return passengerResult.size() > 0 ? passengerResult : null;
+	}
+
+	/**
+	 * Returns whether the passengers of a class keep the default behavior of
+	 * {@link Passenger#getPresence(List)}.
+	 * 
+	 * @param type
+	 *            The class of the passengers.
+	 * @return Whether the passengers are matched by name.
+	 */
+	private boolean isMatchedByName(Class<?> type) {
+		Boolean matched = matchedByName.get(type);
+		if (matched == null) {
+			try {
+				matched = type.getMethod("getPresence", List.class)
+						.getDeclaringClass() == Passenger.class;
+			} catch (NoSuchMethodException e) {
+				matched = false;
+			}
+			matchedByName.put(type, matched);
+		}
+		return matched;
+	}
+
+	/**
+	 * Computes the position of each kind when the kinds are sorted by name.
+	 */
+	private void rank() {
+		List<String> sorted = new ArrayList<String>(names);
+		Collections.sort(sorted);
+		ranks = new int[names.size()];
+		for (int rank = 0; rank < sorted.size(); rank++) {
+			ranks[kinds.get(sorted.get(rank))] = rank;
+		}
+	}
+}
@@ -0,0 +1,554 @@
+package com.github.steevedroz.river.passenger.relation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.steevedroz.river.passenger.Cowl;
+import com.github.steevedroz.river.passenger.CustomPassenger;
+import com.github.steevedroz.river.passenger.Farmer;
+import com.github.steevedroz.river.passenger.Goat;
+import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.Wolf;
+
+/**
+ * This class turns the relations of a set of passengers into operations on
+ * masks, where the bit <code>i</code> of a mask stands for the passenger
+ * <code>i</code>. Checking whether a location is safe then costs a few
+ * integer operations per passenger that may be killed, instead of building
+ * lists and comparing names.<br />
+ * <br />
+ * Each {@link RelationElement} is compiled into a node that gives, for the
+ * passengers of a location, the passengers its
+ * {@link RelationElement#getPresence(List)} would return and how many there
+ * would be, duplicates included:
+ * <ul>
+ * <li>a {@link Passenger} that keeps the default behavior matches the
+ * passengers with the same name;</li>
+ * <li>a {@link CustomPassenger} returns the killers of each of its relations,
+ * one after the other;</li>
+ * <li>a {@link Goat} or a {@link Cowl} is killed by the wolves or the goats
+ * unless a farmer is there, a {@link Wolf} or a {@link Farmer} is never
+ * killed;</li>
+ * <li>a {@link Relation} returns its killers unless one of its protectors is
+ * there;</li>
+ * <li>a {@link RelationCount} returns its killers if they outnumber its
+ * protectors;</li>
+ * <li>a {@link RelationBoolean} returns the passengers returned by any of its
+ * elements, whatever its operator, since neither operator gets a
+ * <code>null</code> list from it.</li>
+ * </ul>
+ * The elements are evaluated in the same order and only when
+ * {@link RelationElement#getPresence(List)} would evaluate them, so that
+ * relations that refer to themselves, like a passenger protected by its own
+ * kind, stop where they used to. Any other element is evaluated by calling
+ * its {@link RelationElement#getPresence(List)} on the passengers of the
+ * mask.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class CompiledRelations implements SafetyCheck {
+	/**
+	 * The maximum number of passengers.
+	 */
+	public static final int MAX_PASSENGERS = 63;
+	/**
+	 * The mask of a list that holds an unknown passenger.
+	 */
+	public static final long UNKNOWN = -1L;
+	/**
+	 * The node of an element that never returns anybody.
+	 */
+	private static final Node NEVER = new Guard(0, 0);
+
+	/**
+	 * The passengers, by index.
+	 */
+	private Passenger[] passengers;
+	/**
+	 * The index of each passenger.
+	 */
+	private Map<Passenger, Integer> indexes;
+	/**
+	 * The node of each passenger, that returns its killers.
+	 */
+	private Node[] threats;
+	/**
+	 * The passengers that may be killed.
+	 */
+	private long threatened;
+	/**
+	 * The nodes already compiled, by element.
+	 */
+	private Map<Object, Node> nodes;
+
+	/**
+	 * This constructor compiles the relations of some passengers.
+	 * 
+	 * @param passengers
+	 *            The passengers, the first one having index <code>0</code>.
+	 * @throws IllegalArgumentException
+	 *             If there are more than {@link #MAX_PASSENGERS} passengers.
+	 */
+	public CompiledRelations(List<Passenger> passengers) {
+		if (passengers.size() > MAX_PASSENGERS) {
+			throw new IllegalArgumentException("More than " + MAX_PASSENGERS
+					+ " passengers");
+		}
+		this.passengers = passengers.toArray(new Passenger[passengers.size()]);
+		indexes = new IdentityHashMap<Passenger, Integer>();
+		for (int i = 0; i < this.passengers.length; i++) {
+			indexes.put(this.passengers[i], i);
+		}
+		nodes = new IdentityHashMap<Object, Node>();
+		threats = new Node[this.passengers.length];
+		for (int i = 0; i < threats.length; i++) {
+			threats[i] = compile(this.passengers[i]);
+			if (threats[i] != NEVER) {
+				threatened |= 1L << i;
+			}
+		}
+		nodes = null;
+	}
+
+	/**
+	 * Returns whether the passengers of a mask survive together.
+	 * 
+	 * @param mask
+	 *            The passengers.
+	 * @return <code>true</code> if nobody gets killed.
+	 */
+	public boolean isSafe(long mask) {
+		for (long rest = mask & threatened; rest != 0; rest &= rest - 1) {
+			if (threats[Long.numberOfTrailingZeros(rest)].count(mask) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isSafe(List<Passenger> passengers) {
+		long mask = maskOf(passengers);
+		if (mask != UNKNOWN) {
+			return isSafe(mask);
+		}
+		for (Passenger passenger : passengers) {
+			if (passenger.getPresence(passengers) != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the mask of some passengers.
+	 * 
+	 * @param passengers
+	 *            The passengers.
+	 * @return The mask, or {@link #UNKNOWN} if a passenger hasn't been
+	 *         compiled or is in the list twice.
+	 */
+	public long maskOf(List<Passenger> passengers) {
+		long mask = 0;
+		for (Passenger passenger : passengers) {
+			Integer index = indexes.get(passenger);
+			if (index == null || (mask & 1L << index) != 0) {
+				return UNKNOWN;
+			}
+			mask |= 1L << index;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the passengers of a mask, in index order.
+	 * 
+	 * @param mask
+	 *            The passengers.
+	 * @return A new list of the passengers.
+	 */
+	private List<Passenger> passengersOf(long mask) {
+		List<Passenger> present = new ArrayList<Passenger>(Long.bitCount(mask));
+		for (long rest = mask; rest != 0; rest &= rest - 1) {
+			present.add(passengers[Long.numberOfTrailingZeros(rest)]);
+		}
+		return present;
+	}
+
+	/**
+	 * Returns the passengers with a given class.
+	 * 
+	 * @param type
+	 *            The class.
+	 * @return The mask of the passengers.
+	 */
+	private long maskOf(Class<?> type) {
+		long mask = 0;
+		for (int i = 0; i < passengers.length; i++) {
+			mask |= passengers[i].getClass() == type ? 1L << i : 0;
+		}
+		return mask;
+	}
+
+	/**
+	 * Compiles an element, or returns the node already compiled for it.
+	 * 
+	 * @param element
+	 *            The element.
+	 * @return The node.
+	 */
+	private Node compile(RelationElement element) {
+		Node node = nodes.get(element);
+		if (node != null) {
+			return node;
+		}
+		if (element == null) {
+			return new Opaque(null);
+		}
+		if (element instanceof CustomPassenger && isDeclaredBy(element,
+				CustomPassenger.class)) {
+			Union union = new Union();
+			nodes.put(element, union);
+			for (Relation relation : ((CustomPassenger) element).getRelations()) {
+				union.parts.add(compile(relation));
+			}
+			return union;
+		}
+		if (element instanceof Passenger && isDeclaredBy(element,
+				Passenger.class)) {
+			node = new Guard(0, maskOf(((Passenger) element).getName()));
+		} else if (element.getClass() == Goat.class) {
+			node = new Guard(maskOf(Farmer.class), maskOf(Wolf.class));
+		} else if (element.getClass() == Cowl.class) {
+			node = new Guard(maskOf(Farmer.class), maskOf(Goat.class));
+		} else if (element.getClass() == Wolf.class
+				|| element.getClass() == Farmer.class) {
+			node = NEVER;
+		} else if (element.getClass() == Relation.class) {
+			Relation relation = (Relation) element;
+			node = new Protected(compile(relation.getKiller()),
+					compile(relation.getProtector()));
+		} else if (element.getClass() == RelationCount.class) {
+			Relation relation = (Relation) element;
+			node = new Outnumbered(compile(relation.getKiller()),
+					compile(relation.getProtector()));
+		} else if (element.getClass() == RelationBoolean.class) {
+			RelationBoolean relation = (RelationBoolean) element;
+			node = new Either(compile(relation.getElement1()),
+					compile(relation.getElement2()));
+		} else {
+			node = new Opaque(element);
+		}
+		nodes.put(element, node);
+		return node;
+	}
+
+	/**
+	 * Returns the passengers with a given name.
+	 * 
+	 * @param name
+	 *            The name.
+	 * @return The mask of the passengers.
+	 */
+	private long maskOf(String name) {
+		long mask = 0;
+		for (int i = 0; i < passengers.length; i++) {
+			mask |= passengers[i].getName().equals(name) ? 1L << i : 0;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns whether the {@link RelationElement#getPresence(List)} method of
+	 * an element is the one of a given class.
+	 * 
+	 * @param element
+	 *            The element.
+	 * @param type
+	 *            The class.
+	 * @return Whether the method is declared by <code>type</code>.
+	 */
+	private static boolean isDeclaredBy(RelationElement element, Class<?> type) {
+		try {
+			return element.getClass().getMethod("getPresence", List.class)
+					.getDeclaringClass() == type;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * This class is a compiled element.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private static abstract class Node {
+		/**
+		 * Returns the passengers the element returns.
+		 * 
+		 * @param mask
+		 *            The passengers of the location.
+		 * @return The mask of the passengers returned.
+		 */
+		protected abstract long members(long mask);
+
+		/**
+		 * Returns how many passengers the element returns, duplicates
+		 * included.
+		 * 
+		 * @param mask
+		 *            The passengers of the location.
+		 * @return The number of passengers, <code>0</code> meaning that the
+		 *         element returns <code>null</code>.
+		 */
+		protected abstract int count(long mask);
+	}
+
+	/**
+	 * This node returns some passengers unless one of the protectors is
+	 * there.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private static class Guard extends Node {
+		/**
+		 * The passengers that prevent anybody from being returned.
+		 */
+		private long protectors;
+		/**
+		 * The passengers returned.
+		 */
+		private long killers;
+
+		/**
+		 * This constructor creates a guard.
+		 * 
+		 * @param protectors
+		 *            The passengers that prevent anybody from being returned.
+		 * @param killers
+		 *            The passengers returned.
+		 */
+		private Guard(long protectors, long killers) {
+			this.protectors = protectors;
+			this.killers = killers;
+		}
+
+		@Override
+		protected long members(long mask) {
+			return (mask & protectors) != 0 ? 0 : mask & killers;
+		}
+
+		@Override
+		protected int count(long mask) {
+			return Long.bitCount(members(mask));
+		}
+	}
+
+	/**
+	 * This node returns what each of its parts returns.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private static class Union extends Node {
+		/**
+		 * The parts.
+		 */
+		private List<Node> parts = new ArrayList<Node>();
+
+		@Override
+		protected long members(long mask) {
+			long members = 0;
+			for (Node part : parts) {
+				members |= part.members(mask);
+			}
+			return members;
+		}
+
+		@Override
+		protected int count(long mask) {
+			int count = 0;
+			for (Node part : parts) {
+				count += part.count(mask);
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * This node returns the killers unless a protector is returned, like
+	 * {@link Relation}.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private static class Protected extends Node {
+		/**
+		 * The killers.
+		 */
+		protected Node killer;
+		/**
+		 * The protectors.
+		 */
+		protected Node protector;
+
+		/**
+		 * This constructor creates a relation.
+		 * 
+		 * @param killer
+		 *            The killers.
+		 * @param protector
+		 *            The protectors.
+		 */
+		private Protected(Node killer, Node protector) {
+			this.killer = killer;
+			this.protector = protector;
+		}
+
+		/**
+		 * Returns whether the killers are returned.
+		 * 
+		 * @param mask
+		 *            The passengers of the location.
+		 * @return Whether the killers are returned.
+		 */
+		protected boolean kills(long mask) {
+			return protector.count(mask) == 0;
+		}
+
+		@Override
+		protected long members(long mask) {
+			return kills(mask) ? killer.members(mask) : 0;
+		}
+
+		@Override
+		protected int count(long mask) {
+			return kills(mask) ? killer.count(mask) : 0;
+		}
+	}
+
+	/**
+	 * This node returns the killers if they outnumber the protectors, like
+	 * {@link RelationCount}.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private static class Outnumbered extends Protected {
+		/**
+		 * This constructor creates a relation.
+		 * 
+		 * @param killer
+		 *            The killers.
+		 * @param protector
+		 *            The protectors.
+		 */
+		private Outnumbered(Node killer, Node protector) {
+			super(killer, protector);
+		}
+
+		@Override
+		protected boolean kills(long mask) {
+			int killers = killer.count(mask);
+			if (killers == 0) {
+				return false;
+			}
+			int protectors = protector.count(mask);
+			return protectors == 0 || killers > protectors;
+		}
+	}
+
+	/**
+	 * This node returns the passengers returned by any of two elements, like
+	 * {@link RelationBoolean}.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private static class Either extends Node {
+		/**
+		 * The first element.
+		 */
+		private Node element1;
+		/**
+		 * The second element.
+		 */
+		private Node element2;
+
+		/**
+		 * This constructor creates a combination.
+		 * 
+		 * @param element1
+		 *            The first element.
+		 * @param element2
+		 *            The second element.
+		 */
+		private Either(Node element1, Node element2) {
+			this.element1 = element1;
+			this.element2 = element2;
+		}
+
+		@Override
+		protected long members(long mask) {
+			if (mask == 0) {
+				return 0;
+			}
+			long members = mask & element1.members(mask);
+			return members == mask ? members : members | mask
+					& element2.members(mask);
+		}
+
+		@Override
+		protected int count(long mask) {
+			return Long.bitCount(members(mask));
+		}
+	}
+
+	/**
+	 * This node calls the element on the passengers of the mask.
+	 * 
+	 * @author Steeve Droz
+	 * 
+	 */
+	private class Opaque extends Node {
+		/**
+		 * The element.
+		 */
+		private RelationElement element;
+
+		/**
+		 * This constructor wraps an element.
+		 * 
+		 * @param element
+		 *            The element.
+		 */
+		private Opaque(RelationElement element) {
+			this.element = element;
+		}
+
+		@Override
+		protected long members(long mask) {
+			List<Passenger> presence = element.getPresence(passengersOf(mask));
+			if (presence == null) {
+				return 0;
+			}
+			long members = 0;
+			for (Passenger passenger : presence) {
+				Integer index = indexes.get(passenger);
+				members |= index != null ? 1L << index : 0;
+			}
+			return members;
+		}
+
+		@Override
+		protected int count(long mask) {
+			List<Passenger> presence = element.getPresence(passengersOf(mask));
+			return presence == null ? 0 : presence.size();
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.github.steevedroz.river.passenger.relation;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.steevedroz.river.passenger.Passenger;
+import com.github.steevedroz.river.passenger.PassengerRegistry;
+
+/**
+ * This class evaluates the elements of the relations once per location check.
+ * <br />
+ * <br />
+ * While a location is checked, the same elements are asked for their presence
+ * again and again: by each passenger of the location, and by each relation
+ * that shares them. Between {@link #begin(List)} and {@link #end()}, the
+ * presence of each element on the passengers of the location is remembered,
+ * so that a tree of relations is evaluated in a single pass. Outside of a
+ * check, or for another list of passengers, the elements are evaluated as
+ * usual.<br />
+ * <br />
+ * A check can be given the registry of the passengers, in which case the
+ * elements are evaluated by
+ * {@link PassengerRegistry#getPresence(RelationElement, List)}, comparing
+ * kinds instead of names.<br />
+ * <br />
+ * The presences are remembered per thread and the passengers must not change
+ * during the check.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public final class PresenceEvaluator {
+	/**
+	 * The value remembered for an element that isn't present.
+	 */
+	private static final Object ABSENT = new Object();
+	/**
+	 * The check in progress on each thread.
+	 */
+	private static final ThreadLocal<PresenceEvaluator> CURRENT = new ThreadLocal<PresenceEvaluator>() {
+		@Override
+		protected PresenceEvaluator initialValue() {
+			return new PresenceEvaluator();
+		}
+	};
+
+	/**
+	 * The passengers of the location being checked, or <code>null</code>.
+	 */
+	private List<Passenger> passengers;
+	/**
+	 * The registry of the passengers being checked, or <code>null</code>.
+	 */
+	private PassengerRegistry registry;
+	/**
+	 * The presence of each element already evaluated, or {@link #ABSENT}.
+	 */
+	private Map<RelationElement, Object> presences;
+
+	/**
+	 * This constructor creates an evaluator with no check in progress.
+	 */
+	private PresenceEvaluator() {
+		presences = new IdentityHashMap<RelationElement, Object>();
+	}
+
+	/**
+	 * Starts the check of a location on the current thread. Nothing is done
+	 * if a check is already in progress.
+	 * 
+	 * @param passengers
+	 *            The passengers of the location.
+	 * @return <code>true</code> if the check has been started, in which case
+	 *         {@link #end()} must be called once it is over.
+	 */
+	public static boolean begin(List<Passenger> passengers) {
+		return begin(passengers, null);
+	}
+
+	/**
+	 * Starts the check of a location on the current thread, evaluating the
+	 * elements with the registry of its passengers. Nothing is done if a
+	 * check is already in progress.
+	 * 
+	 * @param passengers
+	 *            The passengers of the location.
+	 * @param registry
+	 *            The registry of the passengers, or <code>null</code> to
+	 *            evaluate the elements themselves.
+	 * @return <code>true</code> if the check has been started, in which case
+	 *         {@link #end()} must be called once it is over.
+	 */
+	public static boolean begin(List<Passenger> passengers,
+			PassengerRegistry registry) {
+		PresenceEvaluator evaluator = CURRENT.get();
+		if (evaluator.passengers != null) {
+			return false;
+		}
+		evaluator.passengers = passengers;
+		evaluator.registry = registry;
+		return true;
+	}
+
+	/**
+	 * Ends the check in progress on the current thread and forgets the
+	 * presences.
+	 */
+	public static void end() {
+		PresenceEvaluator evaluator = CURRENT.get();
+		evaluator.passengers = null;
+		evaluator.registry = null;
+		evaluator.presences.clear();
+	}
+
+	/**
+	 * Returns the presence of an element, evaluating it only if it hasn't
+	 * been evaluated yet during the check in progress.
+	 * 
+	 * @param element
+	 *            The element.
+	 * @param passengers
+	 *            The passengers to check the presence against.
+	 * @return The passengers that match the element, or <code>null</code>.
+	 * @see RelationElement#getPresence(List)
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Passenger> evaluate(RelationElement element,
+			List<Passenger> passengers) {
+		PresenceEvaluator evaluator = CURRENT.get();
+		if (evaluator.passengers != passengers) {
+			return element.getPresence(passengers);
+		}
+		Object presence = evaluator.presences.get(element);
+		if (presence == null) {
+			List<Passenger> evaluated = evaluator.registry != null ? evaluator.registry
+					.getPresence(element, passengers) : element
+					.getPresence(passengers);
+			evaluator.presences.put(element, evaluated == null ? ABSENT
+					: evaluated);
+			return evaluated;
+		}
+		return presence == ABSENT ? null : (List<Passenger>) presence;
+	}
+}
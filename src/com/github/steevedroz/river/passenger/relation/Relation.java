@@ -112,9 +112,9 @@ public class Relation implements RelationElement {
 	 */
 	@Override
 	public List<Passenger> getPresence(List<Passenger> passengers) {
-		if (protector.getPresence(passengers) != null) {
+		if (PresenceEvaluator.evaluate(protector, passengers) != null) {
 			return null;
 		}
-		return killer.getPresence(passengers);
+		return PresenceEvaluator.evaluate(killer, passengers);
 	}
 }
@@ -58,7 +58,10 @@ public class RelationBoolean implements RelationElement {
 	 * <br />
 	 * If <code>operator</code> is set to {@link RelationOperator#OR}, a value
 	 * is returned if either element returns a value, otherwise
-	 * <code>null</code> is returned.
+	 * <code>null</code> is returned.<br />
+	 * <br />
+	 * Each element is evaluated at most once, and <code>element2</code> only
+	 * if a passenger doesn't match <code>element1</code>.
 	 * 
 	 * @param passengers
 	 *            The list of passengers to check the presence against.
@@ -69,12 +72,23 @@ public class RelationBoolean implements RelationElement {
 	public List<Passenger> getPresence(List<Passenger> passengers) {
 		ArrayList<Passenger> passenger1 = new ArrayList<Passenger>();
 		ArrayList<Passenger> passenger2 = new ArrayList<Passenger>();
+		if (passengers.isEmpty()) {
+			return operator.getPresence(passenger1, passenger2);
+		}
+		List<Passenger> presence1 = PresenceEvaluator.evaluate(element1,
+				passengers);
+		List<Passenger> presence2 = null;
+		boolean evaluated2 = false;
 		for (Passenger passenger : passengers) {
-			if (element1.getPresence(passengers) != null
-					&& element1.getPresence(passengers).contains(passenger)) {
+			if (presence1 != null && presence1.contains(passenger)) {
 				passenger1.add(passenger);
-			} else if (element2.getPresence(passengers) != null
-					&& element2.getPresence(passengers).contains(passenger)) {
+				continue;
+			}
+			if (!evaluated2) {
+				presence2 = PresenceEvaluator.evaluate(element2, passengers);
+				evaluated2 = true;
+			}
+			if (presence2 != null && presence2.contains(passenger)) {
 				passenger2.add(passenger);
 			}
 		}
@@ -42,14 +42,16 @@ public class RelationCount extends Relation {
 	 */
 	@Override
 	public List<Passenger> getPresence(List<Passenger> passengers) {
-		if (killer.getPresence(passengers) == null) {
+		List<Passenger> killers = PresenceEvaluator.evaluate(killer, passengers);
+		if (killers == null) {
 			return null;
 		}
-		if (protector.getPresence(passengers) == null) {
-			return killer.getPresence(passengers);
+		List<Passenger> protectors = PresenceEvaluator.evaluate(protector,
+				passengers);
+		if (protectors == null) {
+			return killers;
 		}
-		return killer.getPresence(passengers).size() > protector.getPresence(
-				passengers).size() ? killer.getPresence(passengers) : null;
+		return killers.size() > protectors.size() ? killers : null;
 	}
 
 	@Override
@@ -0,0 +1,25 @@
+package com.github.steevedroz.river.passenger.relation;
+
+import java.util.List;
+
+import com.github.steevedroz.river.passenger.Passenger;
+
+/**
+ * This interface decides whether some passengers survive together on a
+ * location, the same way as calling {@link Passenger#getPresence(List)} for
+ * each of them would.
+ * 
+ * @author Steeve Droz
+ * @see CompiledRelations
+ * 
+ */
+public interface SafetyCheck {
+	/**
+	 * Returns whether the passengers survive together.
+	 * 
+	 * @param passengers
+	 *            The passengers on a same location.
+	 * @return <code>true</code> if nobody gets killed.
+	 */
+	public boolean isSafe(List<Passenger> passengers);
+}
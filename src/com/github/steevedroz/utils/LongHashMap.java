@@ -0,0 +1,217 @@
+package com.github.steevedroz.utils;
+
+import java.util.Arrays;
+
+/**
+ * This class is a hash map from <code>long</code> keys to <code>long</code>
+ * values that doesn't box its entries. It uses open addressing with linear
+ * probing, so each entry costs two array slots.<br />
+ * <br />
+ * One key value, given to the constructor, is reserved to mark the free slots
+ * and can therefore not be stored.<br />
+ * <br />
+ * <b>Example:</b>
+ * 
+ * <pre>
+ * LongHashMap map = new LongHashMap(-1L);
+ * map.put(42L, 7L);
+ * long value = map.get(42L, 0L); // 7
+ * boolean added = map.putIfAbsent(42L, 8L); // false, value is still 7
+ * </pre>
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class LongHashMap {
+	/**
+	 * The default number of slots.
+	 */
+	public static final int CAPACITY = 16;
+
+	/**
+	 * The key that marks a free slot.
+	 */
+	private final long emptyKey;
+	/**
+	 * The keys, or {@link #emptyKey} for a free slot.
+	 */
+	private long[] keys;
+	/**
+	 * The values, at the same position as their key.
+	 */
+	private long[] values;
+	/**
+	 * The number of entries.
+	 */
+	private int size;
+
+	/**
+	 * This constructor creates an empty map.
+	 * 
+	 * @param emptyKey
+	 *            The key that marks the free slots. It can't be used as a key.
+	 */
+	public LongHashMap(long emptyKey) {
+		this.emptyKey = emptyKey;
+		allocate(CAPACITY);
+	}
+
+	/**
+	 * Returns whether the key is in the map.
+	 * 
+	 * @param key
+	 *            The key to look for.
+	 * @return Whether the key is in the map.
+	 */
+	public boolean containsKey(long key) {
+		return keys[slot(key)] != emptyKey;
+	}
+
+	/**
+	 * Returns the value associated to a key.
+	 * 
+	 * @param key
+	 *            The key to look for.
+	 * @param defaultValue
+	 *            The value returned if the key is absent.
+	 * @return The value associated to the key or <code>defaultValue</code>.
+	 */
+	public long get(long key, long defaultValue) {
+		int slot = slot(key);
+		return keys[slot] != emptyKey ? values[slot] : defaultValue;
+	}
+
+	/**
+	 * Associates a value to a key, replacing any previous value.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The value.
+	 */
+	public void put(long key, long value) {
+		int slot = slot(key);
+		if (keys[slot] == emptyKey) {
+			insert(slot, key, value);
+		} else {
+			values[slot] = value;
+		}
+	}
+
+	/**
+	 * Associates a value to a key only if the key isn't already in the map.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The value.
+	 * @return <code>true</code> if the entry has been added,
+	 *         <code>false</code> if the key was already present.
+	 */
+	public boolean putIfAbsent(long key, long value) {
+		int slot = slot(key);
+		if (keys[slot] != emptyKey) {
+			return false;
+		}
+		insert(slot, key, value);
+		return true;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	public void clear() {
+		allocate(CAPACITY);
+	}
+
+	/**
+	 * Returns the slot that holds the key, or the free slot where it would be
+	 * inserted.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return The slot.
+	 */
+	private int slot(long key) {
+		if (key == emptyKey) {
+			throw new IllegalArgumentException("The key " + key
+					+ " marks free slots");
+		}
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != emptyKey && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Writes an entry in a free slot, growing the table when it gets half
+	 * full.
+	 * 
+	 * @param slot
+	 *            The free slot.
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The value.
+	 */
+	private void insert(int slot, long key, long value) {
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if (size * 2 > keys.length) {
+			long[] oldKeys = keys;
+			long[] oldValues = values;
+			allocate(keys.length * 2);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != emptyKey) {
+					int free = slot(oldKeys[i]);
+					keys[free] = oldKeys[i];
+					values[free] = oldValues[i];
+					size++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the table by an empty one.
+	 * 
+	 * @param capacity
+	 *            The number of slots, a power of two.
+	 */
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new long[capacity];
+		if (emptyKey != 0) {
+			Arrays.fill(keys, emptyKey);
+		}
+		size = 0;
+	}
+
+	/**
+	 * Spreads the bits of a key so that close keys end up in distant slots.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return The hash of the key.
+	 */
+	public static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
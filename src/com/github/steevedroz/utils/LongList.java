@@ -0,0 +1,102 @@
+package com.github.steevedroz.utils;
+
+import java.util.Arrays;
+
+/**
+ * This class is a growable list of <code>long</code> values that doesn't box
+ * its elements.
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class LongList {
+	/**
+	 * The elements, the first {@link #size} being used.
+	 */
+	private long[] elements;
+	/**
+	 * The number of elements.
+	 */
+	private int size;
+
+	/**
+	 * This constructor creates an empty list.
+	 */
+	public LongList() {
+		elements = new long[16];
+	}
+
+	/**
+	 * Adds an element at the end of the list.
+	 * 
+	 * @param element
+	 *            The element.
+	 */
+	public void add(long element) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+		elements[size++] = element;
+	}
+
+	/**
+	 * Returns an element.
+	 * 
+	 * @param index
+	 *            The position of the element.
+	 * @return The element.
+	 */
+	public long get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+		return elements[index];
+	}
+
+	/**
+	 * Removes the last element and returns it.
+	 * 
+	 * @return The removed element.
+	 */
+	public long removeLast() {
+		if (size == 0) {
+			throw new IndexOutOfBoundsException("The list is empty");
+		}
+		return elements[--size];
+	}
+
+	/**
+	 * Returns the number of elements.
+	 * 
+	 * @return The number of elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether the list is empty.
+	 * 
+	 * @return Whether the list is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes every element.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns the elements in a new array.
+	 * 
+	 * @return The elements.
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+}
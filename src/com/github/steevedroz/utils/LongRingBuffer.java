@@ -0,0 +1,300 @@
+package com.github.steevedroz.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This class is a first-in first-out queue of <code>long</code> values that
+ * doesn't box its elements. The elements are kept in a ring, so that adding
+ * and removing one takes constant time.<br />
+ * <br />
+ * The ring grows up to a limit given to the constructor. Beyond it, the
+ * newest elements are gathered in segments that are written to a temporary
+ * file, and read back in order once the ring is empty. A queue of any length
+ * therefore holds at most about the limit in memory. The file is only created
+ * when it is needed, and deleted by {@link #close()}.<br />
+ * <br />
+ * <b>Example:</b>
+ * 
+ * <pre>
+ * LongRingBuffer queue = new LongRingBuffer(LongRingBuffer.LIMIT);
+ * try {
+ * 	queue.add(42L);
+ * 	long first = queue.remove(); // 42
+ * } finally {
+ * 	queue.close();
+ * }
+ * </pre>
+ * 
+ * @author Steeve Droz
+ * 
+ */
+public class LongRingBuffer implements Closeable {
+	/**
+	 * The default number of elements kept in memory.
+	 */
+	public static final int LIMIT = 1 << 22;
+	/**
+	 * The largest number of elements written to the file at once.
+	 */
+	public static final int SEGMENT = 1 << 14;
+
+	/**
+	 * The number of elements the ring can grow to.
+	 */
+	private final int limit;
+	/**
+	 * The oldest elements, starting at {@link #head}.
+	 */
+	private long[] ring;
+	/**
+	 * The position of the oldest element in {@link #ring}.
+	 */
+	private int head;
+	/**
+	 * The number of elements in {@link #ring}.
+	 */
+	private int size;
+	/**
+	 * The newest elements, waiting to be written to the file, the first
+	 * {@link #tailSize} being used.
+	 */
+	private long[] tail;
+	/**
+	 * The number of elements in {@link #tail}.
+	 */
+	private int tailSize;
+	/**
+	 * The temporary file, or <code>null</code> if it hasn't been needed yet.
+	 */
+	private File file;
+	/**
+	 * The channel of the temporary file, or <code>null</code>.
+	 */
+	private FileChannel channel;
+	/**
+	 * The bytes being written to or read from the file.
+	 */
+	private ByteBuffer bytes;
+	/**
+	 * The position in the file of the next element to read.
+	 */
+	private long readPosition;
+	/**
+	 * The position in the file where the next element is written.
+	 */
+	private long writePosition;
+
+	/**
+	 * This constructor creates an empty queue.
+	 * 
+	 * @param limit
+	 *            The number of elements kept in memory, at least
+	 *            <code>1</code>, before the newest ones are written to a
+	 *            temporary file.
+	 */
+	public LongRingBuffer(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("The limit must be positive: "
+					+ limit);
+		}
+		this.limit = limit;
+		ring = new long[Math.min(16, limit)];
+		tail = new long[Math.min(SEGMENT, limit)];
+	}
+
+	/**
+	 * Adds an element at the end of the queue.
+	 * 
+	 * @param element
+	 *            The element.
+	 */
+	public void add(long element) {
+		if (tailSize == 0 && readPosition == writePosition && size < limit) {
+			if (size == ring.length) {
+				grow();
+			}
+			int position = head + size;
+			if (position >= ring.length) {
+				position -= ring.length;
+			}
+			ring[position] = element;
+			size++;
+			return;
+		}
+		tail[tailSize++] = element;
+		if (tailSize == tail.length) {
+			spill();
+		}
+	}
+
+	/**
+	 * Removes the first element and returns it.
+	 * 
+	 * @return The removed element.
+	 */
+	public long remove() {
+		if (size == 0) {
+			refill();
+		}
+		long element = ring[head];
+		head = head + 1 < ring.length ? head + 1 : 0;
+		size--;
+		return element;
+	}
+
+	/**
+	 * Returns the number of elements, in memory and in the file.
+	 * 
+	 * @return The number of elements.
+	 */
+	public long size() {
+		return size + tailSize + (writePosition - readPosition) / 8;
+	}
+
+	/**
+	 * Returns whether the queue is empty.
+	 * 
+	 * @return Whether the queue is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0 && tailSize == 0 && readPosition == writePosition;
+	}
+
+	/**
+	 * Returns the number of elements written to the file that haven't been
+	 * read back yet.
+	 * 
+	 * @return The number of elements in the file.
+	 */
+	public long getSpilled() {
+		return (writePosition - readPosition) / 8;
+	}
+
+	/**
+	 * Removes every element. The file, if any, is kept for the next
+	 * elements.
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+		tailSize = 0;
+		readPosition = 0;
+		writePosition = 0;
+	}
+
+	/**
+	 * Removes every element and deletes the temporary file. The queue can
+	 * still be used afterwards, a new file being created if needed.
+	 */
+	@Override
+	public void close() {
+		clear();
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			} finally {
+				file.delete();
+				channel = null;
+				file = null;
+			}
+		}
+	}
+
+	/**
+	 * Doubles the size of the ring, without going over {@link #limit}.
+	 */
+	private void grow() {
+		long[] grown = new long[(int) Math.min(limit, ring.length * 2L)];
+		int first = Math.min(size, ring.length - head);
+		System.arraycopy(ring, head, grown, 0, first);
+		System.arraycopy(ring, 0, grown, first, size - first);
+		ring = grown;
+		head = 0;
+	}
+
+	/**
+	 * Writes the elements of {@link #tail} to the end of the file.
+	 */
+	private void spill() {
+		try {
+			if (channel == null) {
+				file = File.createTempFile("river", ".queue");
+				file.deleteOnExit();
+				channel = new RandomAccessFile(file, "rw").getChannel();
+				bytes = ByteBuffer.allocateDirect(tail.length * 8);
+			}
+			bytes.clear();
+			bytes.asLongBuffer().put(tail, 0, tailSize);
+			bytes.limit(tailSize * 8);
+			while (bytes.hasRemaining()) {
+				writePosition += channel.write(bytes, writePosition);
+			}
+			tailSize = 0;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Fills the empty ring with the oldest elements of the file, or with the
+	 * elements of {@link #tail} if the file has been read entirely.
+	 */
+	private void refill() {
+		head = 0;
+		if (readPosition < writePosition) {
+			int count = (int) Math.min(ring.length,
+					(writePosition - readPosition) / 8);
+			for (int done = 0; done < count; done += tail.length) {
+				read(done, Math.min(tail.length, count - done));
+			}
+			if (readPosition == writePosition) {
+				readPosition = 0;
+				writePosition = 0;
+			}
+			size = count;
+		} else if (tailSize > 0) {
+			if (ring.length < tailSize) {
+				ring = Arrays.copyOf(ring, tailSize);
+			}
+			System.arraycopy(tail, 0, ring, 0, tailSize);
+			size = tailSize;
+			tailSize = 0;
+		} else {
+			throw new IndexOutOfBoundsException("The queue is empty");
+		}
+	}
+
+	/**
+	 * Reads the oldest elements of the file into the ring.
+	 * 
+	 * @param offset
+	 *            The position in the ring of the first element read.
+	 * @param count
+	 *            The number of elements to read, at most the length of
+	 *            {@link #tail}.
+	 */
+	private void read(int offset, int count) {
+		try {
+			bytes.clear();
+			bytes.limit(count * 8);
+			while (bytes.hasRemaining()) {
+				if (channel.read(bytes, readPosition + bytes.position()) < 0) {
+					throw new IOException("The file is too short");
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		bytes.flip();
+		bytes.asLongBuffer().get(ring, offset, count);
+		readPosition += count * 8L;
+	}
+}